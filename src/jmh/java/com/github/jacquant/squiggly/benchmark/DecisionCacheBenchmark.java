@@ -0,0 +1,133 @@
+package com.github.jacquant.squiggly.benchmark;
+
+import com.github.jacquant.squiggly.match.SquigglyDecisionCache;
+import com.github.jacquant.squiggly.match.SquigglyMatchState;
+import com.github.jacquant.squiggly.match.SquigglyMatcher;
+import com.github.jacquant.squiggly.parser.SquigglyNode;
+import com.github.jacquant.squiggly.parser.SquigglyParser;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the decision cache with the Guava path cache it replaced, under contention from 1 to 64 threads.  Both
+ * caches are warm, so every lookup is a hit.  The Guava cache is used the way the filter used it: a pair of the path
+ * and the filter is allocated per lookup and the result is put back even on a hit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecisionCacheBenchmark {
+
+    private static final int KEYS = 1024;
+    private static final String FILTER = "id,name,assignee{firstName,lastName}";
+
+    @State(Scope.Benchmark)
+    public static class Caches {
+        Cache<Pair<String, String>, Boolean> pathCache;
+        SquigglyDecisionCache decisionCache;
+        String[] paths;
+        SquigglyMatchState[] states;
+
+        @Setup
+        public void setup() {
+            pathCache = CacheBuilder.newBuilder().maximumSize(10000).build();
+            decisionCache = new SquigglyDecisionCache(10000);
+            paths = new String[KEYS];
+            states = new SquigglyMatchState[KEYS];
+            List<SquigglyNode> nodes = new SquigglyParser().parse(FILTER);
+
+            for (int i = 0; i < KEYS; i++) {
+                paths[i] = "assignee.property" + i;
+                states[i] = new SquigglyMatcher(nodes).getRootState();
+                pathCache.put(Pair.of(paths[i], FILTER), Boolean.TRUE);
+                decisionCache.put(states[i], Object.class, Boolean.TRUE);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            next = (next + 1) & (KEYS - 1);
+            return next;
+        }
+    }
+
+    private static Object pathCache(Caches caches, Cursor cursor) {
+        Pair<String, String> pair = Pair.of(caches.paths[cursor.next()], FILTER);
+        Boolean match = caches.pathCache.getIfPresent(pair);
+        caches.pathCache.put(pair, match);
+        return match;
+    }
+
+    private static Object decisionCache(Caches caches, Cursor cursor) {
+        return caches.decisionCache.get(caches.states[cursor.next()], Object.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object pathCache1(Caches caches, Cursor cursor) {
+        return pathCache(caches, cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object pathCache4(Caches caches, Cursor cursor) {
+        return pathCache(caches, cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object pathCache16(Caches caches, Cursor cursor) {
+        return pathCache(caches, cursor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object pathCache64(Caches caches, Cursor cursor) {
+        return pathCache(caches, cursor);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object decisionCache1(Caches caches, Cursor cursor) {
+        return decisionCache(caches, cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object decisionCache4(Caches caches, Cursor cursor) {
+        return decisionCache(caches, cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object decisionCache16(Caches caches, Cursor cursor) {
+        return decisionCache(caches, cursor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object decisionCache64(Caches caches, Cursor cursor) {
+        return decisionCache(caches, cursor);
+    }
+}
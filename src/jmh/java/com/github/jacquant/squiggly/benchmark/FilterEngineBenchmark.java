@@ -0,0 +1,67 @@
+package com.github.jacquant.squiggly.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jacquant.squiggly.Squiggly;
+import com.github.jacquant.squiggly.filter.SquigglyModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the property filter, the pruned serializers of the @{@link SquigglyModule} and the pruned serializers with
+ * generated accessors, serializing a list of wide entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterEngineBenchmark {
+
+    @Param({"filter", "module", "accessors"})
+    public String engine;
+
+    @Param({"id,field01,field02", "**"})
+    public String filter;
+
+    @Param({"100"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private List<WideEntity> entities;
+
+    @Setup
+    public void setup() {
+        mapper = Squiggly.init(new ObjectMapper(), filter);
+
+        if ("module".equals(engine)) {
+            mapper.registerModule(new SquigglyModule(false));
+        } else if ("accessors".equals(engine)) {
+            mapper.registerModule(new SquigglyModule(true));
+        }
+
+        entities = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            entities.add(new WideEntity(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return mapper.writeValueAsBytes(entities);
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.jacquant.squiggly.benchmark;
+
+import com.github.jacquant.squiggly.parser.AntlrSquigglyParser;
+import com.github.jacquant.squiggly.parser.SquigglyDescentParser;
+import com.github.jacquant.squiggly.parser.SquigglyNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing filters, without the node cache, with the hand written descent parser and with the ANTLR parser it
+ * replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"short", "nested", "wide"})
+    public String filter;
+
+    private final SquigglyDescentParser descentParser = new SquigglyDescentParser();
+    private final AntlrSquigglyParser antlrParser = new AntlrSquigglyParser();
+    private String expression;
+
+    @Setup
+    public void setup() {
+        switch (filter) {
+            case "short":
+                expression = "id,key,fields{summary,assignee}";
+                break;
+            case "nested":
+                expression = "id,key,fields{summary,(assignee|reporter){displayName,~email.*~i},-description},changelog.histories[items]";
+                break;
+            default:
+                StringBuilder wide = new StringBuilder("field0");
+
+                for (int i = 1; i < 5000; i++) {
+                    wide.append(",field").append(i);
+                }
+
+                expression = wide.toString();
+                break;
+        }
+    }
+
+    @Benchmark
+    public List<SquigglyNode> descent() {
+        return descentParser.parse(expression);
+    }
+
+    @Benchmark
+    public List<SquigglyNode> antlr() {
+        return antlrParser.parse(expression);
+    }
+}
@@ -0,0 +1,304 @@
+package com.github.jacquant.squiggly.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jacquant.squiggly.Squiggly;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Serializes lists whose elements are spread over 1, 4 or 32 classes, so the include masks of the element state are
+ * found in its inline cache (1 and 4 classes) or in the megamorphic table (32 classes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolymorphicListBenchmark {
+
+    private static final List<IntFunction<Element>> CONSTRUCTORS = Arrays.<IntFunction<Element>>asList(
+            Element01::new,
+            Element02::new,
+            Element03::new,
+            Element04::new,
+            Element05::new,
+            Element06::new,
+            Element07::new,
+            Element08::new,
+            Element09::new,
+            Element10::new,
+            Element11::new,
+            Element12::new,
+            Element13::new,
+            Element14::new,
+            Element15::new,
+            Element16::new,
+            Element17::new,
+            Element18::new,
+            Element19::new,
+            Element20::new,
+            Element21::new,
+            Element22::new,
+            Element23::new,
+            Element24::new,
+            Element25::new,
+            Element26::new,
+            Element27::new,
+            Element28::new,
+            Element29::new,
+            Element30::new,
+            Element31::new,
+            Element32::new);
+
+    @Param({"1", "4", "32"})
+    public int classes;
+
+    @Param({"128"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private List<Element> elements;
+
+    @Setup
+    public void setup() {
+        mapper = Squiggly.init(new ObjectMapper(), "id,name");
+        elements = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            elements.add(CONSTRUCTORS.get(i % classes).apply(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return mapper.writeValueAsBytes(elements);
+    }
+
+    public static class Element {
+        private final int id;
+
+        public Element(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return "element" + id;
+        }
+
+        public String getDescription() {
+            return "description of element " + id;
+        }
+    }
+
+    public static class Element01 extends Element {
+        public Element01(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element02 extends Element {
+        public Element02(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element03 extends Element {
+        public Element03(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element04 extends Element {
+        public Element04(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element05 extends Element {
+        public Element05(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element06 extends Element {
+        public Element06(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element07 extends Element {
+        public Element07(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element08 extends Element {
+        public Element08(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element09 extends Element {
+        public Element09(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element10 extends Element {
+        public Element10(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element11 extends Element {
+        public Element11(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element12 extends Element {
+        public Element12(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element13 extends Element {
+        public Element13(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element14 extends Element {
+        public Element14(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element15 extends Element {
+        public Element15(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element16 extends Element {
+        public Element16(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element17 extends Element {
+        public Element17(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element18 extends Element {
+        public Element18(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element19 extends Element {
+        public Element19(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element20 extends Element {
+        public Element20(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element21 extends Element {
+        public Element21(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element22 extends Element {
+        public Element22(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element23 extends Element {
+        public Element23(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element24 extends Element {
+        public Element24(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element25 extends Element {
+        public Element25(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element26 extends Element {
+        public Element26(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element27 extends Element {
+        public Element27(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element28 extends Element {
+        public Element28(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element29 extends Element {
+        public Element29(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element30 extends Element {
+        public Element30(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element31 extends Element {
+        public Element31(int id) {
+            super(id);
+        }
+    }
+
+    public static class Element32 extends Element {
+        public Element32(int id) {
+            super(id);
+        }
+    }
+}
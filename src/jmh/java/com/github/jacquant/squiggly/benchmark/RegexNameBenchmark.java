@@ -0,0 +1,60 @@
+package com.github.jacquant.squiggly.benchmark;
+
+import com.github.jacquant.squiggly.name.RegexName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares matching regex names with java.util.regex and with the linear time engine, for an everyday pattern and for
+ * adversarial patterns that make java.util.regex backtrack exponentially on a name that almost matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexNameBenchmark {
+
+    @Param({"issue.*|assignee", "(a|a)*b", "(a+)+b", "a*a*a*a*a*a*b"})
+    public String pattern;
+
+    @Param({"JAVA", "LINEAR"})
+    public RegexName.Engine engine;
+
+    @Param({"8", "16", "24"})
+    public int length;
+
+    private RegexName name;
+    private String propertyName;
+
+    @Setup
+    public void setup() {
+        name = new RegexName(pattern, Collections.<String>emptySet(), engine);
+
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            builder.append('a');
+        }
+
+        propertyName = builder.append('c').toString();
+    }
+
+    @Benchmark
+    public int match() {
+        return name.match(propertyName);
+    }
+}
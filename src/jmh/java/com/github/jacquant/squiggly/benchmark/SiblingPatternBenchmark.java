@@ -0,0 +1,92 @@
+package com.github.jacquant.squiggly.benchmark;
+
+import com.github.jacquant.squiggly.name.WildcardName;
+import com.github.jacquant.squiggly.parser.SquigglyNode;
+import com.github.jacquant.squiggly.parser.SquigglyNodeIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding the best of many sibling wildcard names with the node index, which matches them all in one pass,
+ * and with a linear scan that matches them one by one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SiblingPatternBenchmark {
+
+    private static final String[] GLOBS = {"eco*", "*Time", "*Weight*", "iss*Sum*", "a?s*e", "*Id", "created*",
+            "*At", "user*", "*Count", "is*", "*Url", "total*", "*Name", "has*", "*List"};
+
+    private static final String[] NAMES = {"id", "economy", "ecoFriendly", "startTime", "createdTime", "netWeightKg",
+            "grossWeight", "issueSummary", "assignee", "reporter", "properties", "actions"};
+
+    @Param({"2", "4", "8", "16", "32"})
+    public int siblings;
+
+    private List<SquigglyNode> nodes;
+    private SquigglyNodeIndex index;
+
+    @Setup
+    public void setup() {
+        nodes = new ArrayList<>();
+
+        for (int i = 0; i < siblings; i++) {
+            String glob = GLOBS[i % GLOBS.length] + ((i < GLOBS.length) ? "" : "*");
+            nodes.add(new SquigglyNode(new WildcardName(glob), Collections.<SquigglyNode>emptyList(), false, false, false));
+        }
+
+        index = SquigglyNodeIndex.of(nodes);
+    }
+
+    @Benchmark
+    public int index() {
+        int sum = 0;
+
+        for (String name : NAMES) {
+            sum += (index.findBest(name) == null) ? 0 : 1;
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public int scan() {
+        int sum = 0;
+
+        for (String name : NAMES) {
+            SquigglyNode match = null;
+            int lastMatchStrength = -1;
+
+            for (SquigglyNode node : nodes) {
+                int matchStrength = node.match(name);
+
+                if (matchStrength >= 0 && matchStrength >= lastMatchStrength) {
+                    match = node;
+                    lastMatchStrength = matchStrength;
+                }
+            }
+
+            sum += (match == null) ? 0 : 1;
+        }
+
+        return sum;
+    }
+}
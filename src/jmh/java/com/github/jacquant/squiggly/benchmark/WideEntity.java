@@ -0,0 +1,168 @@
+package com.github.jacquant.squiggly.benchmark;
+
+/**
+ * An entity with many simple properties, like the JPA entities returned by list endpoints.
+ */
+public class WideEntity {
+
+    private final long id;
+
+    private String field01 = "value01";
+    private String field02 = "value02";
+    private String field03 = "value03";
+    private String field04 = "value04";
+    private String field05 = "value05";
+    private String field06 = "value06";
+    private String field07 = "value07";
+    private String field08 = "value08";
+    private String field09 = "value09";
+    private String field10 = "value10";
+    private String field11 = "value11";
+    private String field12 = "value12";
+    private String field13 = "value13";
+    private String field14 = "value14";
+    private String field15 = "value15";
+    private String field16 = "value16";
+    private String field17 = "value17";
+    private String field18 = "value18";
+    private String field19 = "value19";
+    private String field20 = "value20";
+    private String field21 = "value21";
+    private String field22 = "value22";
+    private String field23 = "value23";
+    private String field24 = "value24";
+    private String field25 = "value25";
+    private String field26 = "value26";
+    private String field27 = "value27";
+    private String field28 = "value28";
+    private String field29 = "value29";
+    private String field30 = "value30";
+
+    public WideEntity(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getField01() {
+        return field01;
+    }
+
+    public String getField02() {
+        return field02;
+    }
+
+    public String getField03() {
+        return field03;
+    }
+
+    public String getField04() {
+        return field04;
+    }
+
+    public String getField05() {
+        return field05;
+    }
+
+    public String getField06() {
+        return field06;
+    }
+
+    public String getField07() {
+        return field07;
+    }
+
+    public String getField08() {
+        return field08;
+    }
+
+    public String getField09() {
+        return field09;
+    }
+
+    public String getField10() {
+        return field10;
+    }
+
+    public String getField11() {
+        return field11;
+    }
+
+    public String getField12() {
+        return field12;
+    }
+
+    public String getField13() {
+        return field13;
+    }
+
+    public String getField14() {
+        return field14;
+    }
+
+    public String getField15() {
+        return field15;
+    }
+
+    public String getField16() {
+        return field16;
+    }
+
+    public String getField17() {
+        return field17;
+    }
+
+    public String getField18() {
+        return field18;
+    }
+
+    public String getField19() {
+        return field19;
+    }
+
+    public String getField20() {
+        return field20;
+    }
+
+    public String getField21() {
+        return field21;
+    }
+
+    public String getField22() {
+        return field22;
+    }
+
+    public String getField23() {
+        return field23;
+    }
+
+    public String getField24() {
+        return field24;
+    }
+
+    public String getField25() {
+        return field25;
+    }
+
+    public String getField26() {
+        return field26;
+    }
+
+    public String getField27() {
+        return field27;
+    }
+
+    public String getField28() {
+        return field28;
+    }
+
+    public String getField29() {
+        return field29;
+    }
+
+    public String getField30() {
+        return field30;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.jacquant.squiggly.benchmark;
+
+import com.github.jacquant.squiggly.name.WildcardName;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares matching property names against a wildcard name with the glob matcher and with the regex wildcard names
+ * used to compile to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WildcardNameBenchmark {
+
+    private static final String[] NAMES = {"id", "economy", "ecoFriendly", "startTime", "createdTime", "netWeightKg",
+            "grossWeight", "issueSummary", "assignee", "reporter", "properties", "actions"};
+
+    @Param({"eco*", "*Time", "*Weight*", "iss*Sum*", "a?s*e"})
+    public String glob;
+
+    private WildcardName wildcardName;
+    private Pattern pattern;
+    private int strength;
+
+    @Setup
+    public void setup() {
+        wildcardName = new WildcardName(glob);
+        pattern = Pattern.compile("^" + StringUtils.replaceEach(glob, new String[]{"*", "?"}, new String[]{".*", ".?"}) + "$");
+        strength = StringUtils.remove(glob, '*').length() + 2;
+    }
+
+    @Benchmark
+    public int glob() {
+        int sum = 0;
+
+        for (String name : NAMES) {
+            sum += wildcardName.match(name);
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public int regex() {
+        int sum = 0;
+
+        for (String name : NAMES) {
+            sum += pattern.matcher(name).matches() ? strength : -1;
+        }
+
+        return sum;
+    }
+}
@@ -1,12 +1,16 @@
 package com.github.jacquant.squiggly;
 
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotationIntrospectorPair;
 import com.fasterxml.jackson.databind.ser.FilterProvider;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.github.jacquant.squiggly.context.provider.SimpleSquigglyContextProvider;
 import com.github.jacquant.squiggly.context.provider.SquigglyContextProvider;
+import com.github.jacquant.squiggly.filter.SquigglyAnnotationIntrospector;
 import com.github.jacquant.squiggly.filter.SquigglyPropertyFilter;
 import com.github.jacquant.squiggly.filter.SquigglyPropertyFilterMixin;
+import com.github.jacquant.squiggly.filter.SquigglyScope;
 import com.github.jacquant.squiggly.parser.SquigglyParser;
 
 /**
@@ -71,8 +75,62 @@ public class Squiggly {
      * @return object mapper, mainly for convenience
      * @throws IllegalStateException if the filter was unable to be registered
      */
-    @SuppressWarnings("deprecation")
     public static ObjectMapper init(ObjectMapper mapper, SquigglyPropertyFilter filter) throws IllegalStateException {
+        addFilter(mapper, filter);
+        mapper.addMixIn(Object.class, SquigglyPropertyFilterMixin.class);
+
+        return mapper;
+    }
+
+    /**
+     * Initialize a @{@link SquigglyPropertyFilter} with a specific context provider, filtering only the types of a
+     * scope.
+     *
+     * @param mapper          the Jackson Object Mapper
+     * @param contextProvider the context provider to use
+     * @param scope           the types to filter
+     * @return object mapper, mainly for convenience
+     * @throws IllegalStateException if the filter was unable to be registered
+     */
+    public static ObjectMapper init(ObjectMapper mapper, SquigglyContextProvider contextProvider, SquigglyScope scope) throws IllegalStateException {
+        return init(mapper, new SquigglyPropertyFilter(contextProvider), scope);
+    }
+
+    /**
+     * Initialize a @{@link SquigglyPropertyFilter} with a specific property filter, filtering only the types of a
+     * scope.  The other types keep Jackson's stock serializers.
+     *
+     * @param mapper the Jackson Object Mapper
+     * @param filter the property filter
+     * @param scope  the types to filter
+     * @return object mapper, mainly for convenience
+     * @throws IllegalStateException if the filter was unable to be registered
+     */
+    public static ObjectMapper init(ObjectMapper mapper, SquigglyPropertyFilter filter, SquigglyScope scope) throws IllegalStateException {
+        addFilter(mapper, filter);
+        AnnotationIntrospector introspector = mapper.getSerializationConfig().getAnnotationIntrospector();
+        mapper.setAnnotationIntrospector(AnnotationIntrospectorPair.pair(introspector, new SquigglyAnnotationIntrospector(scope)));
+
+        return mapper;
+    }
+
+    /**
+     * Initialize a @{@link SquigglyPropertyFilter} with a specific property filter, filtering only the types of a
+     * scope.
+     *
+     * @param mappers the Jackson Object Mappers to init
+     * @param filter  the property filter
+     * @param scope   the types to filter
+     * @throws IllegalStateException if the filter was unable to be registered
+     */
+    public static void init(Iterable<ObjectMapper> mappers, SquigglyPropertyFilter filter, SquigglyScope scope) {
+        for (ObjectMapper mapper : mappers) {
+            init(mapper, filter, scope);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void addFilter(ObjectMapper mapper, SquigglyPropertyFilter filter) throws IllegalStateException {
         FilterProvider filterProvider = mapper.getSerializationConfig().getFilterProvider();
         SimpleFilterProvider simpleFilterProvider;
 
@@ -87,9 +145,6 @@ public class Squiggly {
         }
 
         simpleFilterProvider.addFilter(SquigglyPropertyFilter.FILTER_ID, filter);
-        mapper.addMixIn(Object.class, SquigglyPropertyFilterMixin.class);
-
-        return mapper;
     }
 
     /**
@@ -1,18 +1,62 @@
 package com.github.jacquant.squiggly.bean;
 
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import com.github.jacquant.squiggly.view.PropertyView;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class BeanInfo {
 
+    // view stacks come from filters, so only a handful of unions are remembered per class
+    private static final int MAX_VIEW_UNIONS = 64;
+
+    private static final long[] NO_PROPERTIES = new long[0];
+
     private Map<String, Set<String>> viewNameToPropertiesNames;
     private Set<String> unwrappedProperties;
+    private final Map<String, Integer> propertyOrdinals;
+    private final Map<String, long[]> viewNameToPropertyBits;
+    private final ConcurrentMap<Set<String>, long[]> viewUnions = new ConcurrentHashMap<>();
 
     public BeanInfo(Map<String, Set<String>> viewNameToPropertiesNames, Set<String> unwrappedProperties) {
+        this(viewNameToPropertiesNames, unwrappedProperties, collectPropertyNames(viewNameToPropertiesNames.values()));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param viewNameToPropertiesNames view name to the names of the properties in the view
+     * @param unwrappedProperties       names of the @JsonUnwrapped properties
+     * @param propertyNames             names of all the properties of the class, which are numbered in this order
+     */
+    public BeanInfo(Map<String, Set<String>> viewNameToPropertiesNames, Set<String> unwrappedProperties, List<String> propertyNames) {
         this.viewNameToPropertiesNames = viewNameToPropertiesNames;
         this.unwrappedProperties = unwrappedProperties;
+
+        ImmutableMap.Builder<String, Integer> ordinals = ImmutableMap.builder();
+
+        for (int i = 0; i < propertyNames.size(); i++) {
+            ordinals.put(propertyNames.get(i), i);
+        }
+
+        this.propertyOrdinals = ordinals.build();
+
+        ImmutableMap.Builder<String, long[]> viewBits = ImmutableMap.builder();
+
+        for (Map.Entry<String, Set<String>> entry : viewNameToPropertiesNames.entrySet()) {
+            viewBits.put(entry.getKey(), toBits(entry.getValue()));
+        }
+
+        this.viewNameToPropertyBits = viewBits.build();
     }
 
     public Set<String> getPropertyNamesForView(String view) {
@@ -25,7 +69,116 @@ public class BeanInfo {
         return properties;
     }
 
+    /**
+     * Get the names of all the properties of the class, in ordinal order.
+     *
+     * @return property names
+     */
+    public Set<String> getPropertyNames() {
+        return propertyOrdinals.keySet();
+    }
+
+    /**
+     * Get the ordinal of a property, which numbers the properties of the class from 0.
+     *
+     * @param property property name
+     * @return ordinal, or -1 if the class has no such property
+     */
+    public int getPropertyOrdinal(String property) {
+        Integer ordinal = propertyOrdinals.get(property);
+        return (ordinal == null) ? -1 : ordinal;
+    }
+
+    /**
+     * Says whether a property belongs to a view.
+     *
+     * @param view     view name
+     * @param property property name
+     * @return true if in the view, false if not
+     */
+    public boolean isInView(String view, String property) {
+        long[] bits = viewNameToPropertyBits.get(view);
+        return bits != null && isSet(bits, property);
+    }
+
+    /**
+     * Says whether a property belongs to any of the views.  When filter.implicitlyIncludeBaseFields is enabled, a view
+     * without properties stands for the base view.  The union of each set of views is built once.
+     *
+     * @param views    view names
+     * @param property property name
+     * @return true if in one of the views, false if not
+     */
+    public boolean isInViews(Set<String> views, String property) {
+        long[] bits = viewUnions.get(views);
+
+        if (bits == null) {
+            bits = unionOf(views);
+
+            if (viewUnions.size() < MAX_VIEW_UNIONS) {
+                viewUnions.putIfAbsent(views, bits);
+            }
+        }
+
+        return isSet(bits, property);
+    }
+
     public boolean isUnwrapped(String property) {
         return unwrappedProperties.contains(property);
     }
+
+    private long[] unionOf(Set<String> views) {
+        long[] union = new long[(propertyOrdinals.size() + 63) >>> 6];
+
+        for (String view : views) {
+            long[] bits = viewNameToPropertyBits.get(view);
+
+            if ((bits == null || bits.length == 0) && SquigglyConfig.isFilterImplicitlyIncludeBaseFields()) {
+                bits = viewNameToPropertyBits.get(PropertyView.BASE_VIEW);
+            }
+
+            if (bits == null) {
+                continue;
+            }
+
+            for (int i = 0; i < bits.length; i++) {
+                union[i] |= bits[i];
+            }
+        }
+
+        return union;
+    }
+
+    private long[] toBits(Set<String> properties) {
+        if (properties.isEmpty()) {
+            return NO_PROPERTIES;
+        }
+
+        long[] bits = new long[(propertyOrdinals.size() + 63) >>> 6];
+
+        for (String property : properties) {
+            int ordinal = getPropertyOrdinal(property);
+
+            if (ordinal >= 0) {
+                bits[ordinal >>> 6] |= 1L << ordinal;
+            }
+        }
+
+        return bits;
+    }
+
+    private boolean isSet(long[] bits, String property) {
+        int ordinal = getPropertyOrdinal(property);
+        return ordinal >= 0 && (ordinal >>> 6) < bits.length && (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    private static List<String> collectPropertyNames(Collection<Set<String>> views) {
+        Set<String> names = Sets.newLinkedHashSet();
+
+        for (Set<String> view : views) {
+            names.addAll(view);
+        }
+
+        return Lists.newArrayList(names);
+    }
 }
@@ -23,6 +23,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -33,13 +34,15 @@ import java.util.Set;
 public class BeanInfoIntrospector {
 
     /**
-     * Caches bean class to a map of views to property views.
+     * Caches bean class to a map of views to property views.  The classes are weakly referenced, so the cache doesn't
+     * keep them, and their class loaders, alive.
      */
     private static final LoadingCache<Class, BeanInfo> CACHE;
     private static final GuavaCacheSquigglyMetricsSource METRICS_SOURCE;
 
     static {
         CACHE = CacheBuilder.from(SquigglyConfig.getPropertyDescriptorCacheSpec())
+                .weakKeys()
                 .build(new CacheLoader<Class, BeanInfo>() {
                     @Override
                     public BeanInfo load(Class key) throws Exception {
@@ -59,6 +62,7 @@ public class BeanInfoIntrospector {
         Map<String, Set<String>> viewToPropertyNames = Maps.newHashMap();
         Set<String> resolved = Sets.newHashSet();
         Set<String> unwrapped = Sets.newHashSet();
+        List<String> propertyNames = Lists.newArrayList();
 
         for (PropertyDescriptor propertyDescriptor : getPropertyDescriptors(beanClass)) {
 
@@ -69,6 +73,9 @@ public class BeanInfoIntrospector {
             Field field = FieldUtils.getField(propertyDescriptor.getReadMethod().getDeclaringClass(), propertyDescriptor.getName(), true);
             String propertyName = getPropertyName(propertyDescriptor, field);
 
+            if (!propertyNames.contains(propertyName)) {
+                propertyNames.add(propertyName);
+            }
 
             if (isUnwrapped(propertyDescriptor, field)) {
                 unwrapped.add(propertyName);
@@ -92,7 +99,7 @@ public class BeanInfoIntrospector {
         viewToPropertyNames = makeUnmodifiable(expand(viewToPropertyNames));
         unwrapped = Collections.unmodifiableSet(unwrapped);
 
-        return new BeanInfo(viewToPropertyNames, unwrapped);
+        return new BeanInfo(viewToPropertyNames, unwrapped, propertyNames);
     }
 
     private static String getPropertyName(PropertyDescriptor propertyDescriptor, Field field) {
@@ -1,6 +1,7 @@
 package com.github.jacquant.squiggly.config;
 
 import com.github.jacquant.squiggly.bean.BeanInfoIntrospector;
+import com.github.jacquant.squiggly.filter.SquigglyBeanSerializer;
 import com.github.jacquant.squiggly.filter.SquigglyPropertyFilter;
 import com.github.jacquant.squiggly.parser.SquigglyParser;
 import com.github.jacquant.squiggly.view.PropertyView;
@@ -27,12 +28,26 @@ public class SquigglyConfig {
     private static final SortedMap<String, String> PROPS_MAP;
     private static final SortedMap<String, String> SOURCE_MAP;
 
+    private static final CacheBuilderSpec filterAccessorCacheSpec;
+    private static final int filterDecisionCacheSize;
+    private static final boolean filterGenerateAccessors;
     private static final boolean filterImplicitlyIncludeBaseFields;
     private static final boolean filterImplicitlyIncludeBaseFieldsInView;
     private static final CacheBuilderSpec filterPathCacheSpec;
+    private static final boolean filterPlainSerializerWhenDisabled;
     private static final boolean filterPropagateViewToNestedFilters;
-
+    private static final boolean filterTrackPathIncrementally;
+
+    private static final boolean parserBudgetDowngrade;
+    private static final int parserBudgetMaxDeepWildcards;
+    private static final int parserBudgetMaxDepth;
+    private static final int parserBudgetMaxNodes;
+    private static final int parserBudgetMaxPatternComplexity;
+    private static final CacheBuilderSpec parserCompositeCacheSpec;
+    private static final CacheBuilderSpec parserErrorCacheSpec;
+    private static final SortedMap<String, String> parserNamedFilters;
     private static final CacheBuilderSpec parserNodeCacheSpec;
+    private static final String parserRegexEngine;
 
     private static boolean propertyAddNonAnnotatedFieldsToBaseView;
     private static final CacheBuilderSpec propertyDescriptorCacheSpec;
@@ -42,16 +57,33 @@ public class SquigglyConfig {
         Map<String, String> sourceMap = Maps.newHashMap();
 
         loadProps(propsMap, sourceMap, "squiggly.default.properties");
+        Map<String, String> defaultSourceMap = Maps.newHashMap(sourceMap);
         loadProps(propsMap, sourceMap, "squiggly.properties");
 
         PROPS_MAP = ImmutableSortedMap.copyOf(propsMap);
         SOURCE_MAP = ImmutableSortedMap.copyOf(sourceMap);
 
+        filterAccessorCacheSpec = getCacheSpec(PROPS_MAP, "filter.accessorCache.spec");
+        filterDecisionCacheSize = getDecisionCacheSize(PROPS_MAP, SOURCE_MAP, defaultSourceMap);
+        filterGenerateAccessors = getBool(PROPS_MAP, "filter.generateAccessors");
         filterImplicitlyIncludeBaseFields = getBool(PROPS_MAP, "filter.implicitlyIncludeBaseFields");
         filterImplicitlyIncludeBaseFieldsInView = getBool(PROPS_MAP, "filter.implicitlyIncludeBaseFieldsInView");
-        filterPathCacheSpec = getCacheSpec(PROPS_MAP, "filter.pathCache.spec");
+        filterPathCacheSpec = PROPS_MAP.containsKey("filter.pathCache.spec")
+                ? getCacheSpec(PROPS_MAP, "filter.pathCache.spec")
+                : CacheBuilderSpec.parse("maximumSize=" + filterDecisionCacheSize);
+        filterPlainSerializerWhenDisabled = getBool(PROPS_MAP, "filter.plainSerializerWhenDisabled");
         filterPropagateViewToNestedFilters = getBool(PROPS_MAP, "filter.propagateViewToNestedFilters");
+        filterTrackPathIncrementally = getBool(PROPS_MAP, "filter.trackPathIncrementally");
+        parserBudgetDowngrade = getBool(PROPS_MAP, "parser.budget.downgrade");
+        parserBudgetMaxDeepWildcards = getInt(PROPS_MAP, "parser.budget.maxDeepWildcards");
+        parserBudgetMaxDepth = getInt(PROPS_MAP, "parser.budget.maxDepth");
+        parserBudgetMaxNodes = getInt(PROPS_MAP, "parser.budget.maxNodes");
+        parserBudgetMaxPatternComplexity = getInt(PROPS_MAP, "parser.budget.maxPatternComplexity");
+        parserCompositeCacheSpec = getCacheSpec(PROPS_MAP, "parser.compositeCache.spec");
+        parserErrorCacheSpec = getCacheSpec(PROPS_MAP, "parser.errorCache.spec");
+        parserNamedFilters = getPrefixed(PROPS_MAP, "parser.namedFilter.");
         parserNodeCacheSpec = getCacheSpec(PROPS_MAP, "parser.nodeCache.spec");
+        parserRegexEngine = getOneOf(PROPS_MAP, "parser.regexEngine", "java", "linear");
         propertyAddNonAnnotatedFieldsToBaseView = getBool(PROPS_MAP, "property.addNonAnnotatedFieldsToBaseView");
         propertyDescriptorCacheSpec = getCacheSpec(PROPS_MAP, "property.descriptorCache.spec");
     }
@@ -70,6 +102,37 @@ public class SquigglyConfig {
         return "true".equals(props.get(key));
     }
 
+    private static SortedMap<String, String> getPrefixed(SortedMap<String, String> props, String prefix) {
+        ImmutableSortedMap.Builder<String, String> builder = ImmutableSortedMap.naturalOrder();
+
+        for (Map.Entry<String, String> entry : props.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                builder.put(entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+        }
+
+        return builder.build();
+    }
+
+    // filter.pathCache.spec is the old name of the decision cache config.  its maximum size is used when
+    // filter.decisionCache.size is left to its default.
+    private static int getDecisionCacheSize(Map<String, String> props, Map<String, String> sourceMap, Map<String, String> defaultSourceMap) {
+        String key = "filter.decisionCache.size";
+        String value = props.get("filter.pathCache.spec");
+
+        if (value == null || !defaultSourceMap.get(key).equals(sourceMap.get(key))) {
+            return getInt(props, key);
+        }
+
+        for (String option : CacheBuilderSpec.parse(value).toParsableString().split(",")) {
+            if (option.startsWith("maximumSize=")) {
+                return Integer.parseInt(option.substring("maximumSize=".length()));
+            }
+        }
+
+        return getInt(props, key);
+    }
+
     private static int getInt(Map<String, String> props, String key) {
         try {
             return Integer.parseInt(props.get(key));
@@ -78,6 +141,18 @@ public class SquigglyConfig {
         }
     }
 
+    private static String getOneOf(Map<String, String> props, String key, String... values) {
+        String value = props.get(key);
+
+        for (String allowed : values) {
+            if (allowed.equalsIgnoreCase(value)) {
+                return allowed;
+            }
+        }
+
+        throw new RuntimeException("Unable to use " + value + " for key " + key + ", expected one of " + String.join(", ", values));
+    }
+
     private static void loadProps(Map<String, String> propsMap, Map<String, String> sourceMap, String file) {
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         URL url = classLoader.getResource(file);
@@ -114,6 +189,38 @@ public class SquigglyConfig {
     private SquigglyConfig() {
     }
 
+    /**
+     * Get the {@link CacheBuilderSpec} of the generated property accessor cache.
+     *
+     * @return spec
+     * @see SquigglyBeanSerializer
+     */
+    public static CacheBuilderSpec getFilterAccessorCacheSpec() {
+        return filterAccessorCacheSpec;
+    }
+
+    /**
+     * Get the number of entries in the decision cache of the squiggly filter, which is used when the path isn't
+     * tracked incrementally.  0 disables the cache.
+     *
+     * @return size
+     * @see SquigglyPropertyFilter
+     */
+    public static int getFilterDecisionCacheSize() {
+        return filterDecisionCacheSize;
+    }
+
+    /**
+     * Determines whether or not the pruned bean serializers generate accessors that read simple properties and write
+     * them straight to the generator.
+     *
+     * @return true if generated, false if not
+     * @see SquigglyBeanSerializer
+     */
+    public static boolean isFilterGenerateAccessors() {
+        return filterGenerateAccessors;
+    }
+
     /**
      * Determines whether or not to include base fields for nested objects
      *
@@ -138,11 +245,25 @@ public class SquigglyConfig {
      *
      * @return spec
      * @see SquigglyPropertyFilter
+     * @deprecated the path cache was replaced by the decision cache, use {@link #getFilterDecisionCacheSize()}.  The
+     * maximum size of filter.pathCache.spec still sizes the decision cache when filter.decisionCache.size isn't set.
      */
+    @Deprecated
     public static CacheBuilderSpec getFilterPathCacheSpec() {
         return filterPathCacheSpec;
     }
 
+    /**
+     * Determines whether or not the bean serializers of the squiggly module fall back to Jackson's plain serialization
+     * when filtering is disabled for the current call, without calling the context provider for each field.
+     *
+     * @return true if plain, false if not
+     * @see SquigglyBeanSerializer
+     */
+    public static boolean isFilterPlainSerializerWhenDisabled() {
+        return filterPlainSerializerWhenDisabled;
+    }
+
     /**
      * Determines whether or not filters that specify a view also propagtes that view to nested filters.
      * <p>
@@ -155,6 +276,98 @@ public class SquigglyConfig {
         return filterPropagateViewToNestedFilters;
     }
 
+    /**
+     * Determines whether or not the squiggly filter tracks the path of the object graph as it serializes, rather than
+     * rebuilding the path from the generator's output context for every property.
+     *
+     * @return true if tracked incrementally, false if not
+     * @see SquigglyPropertyFilter
+     */
+    public static boolean isFilterTrackPathIncrementally() {
+        return filterTrackPathIncrementally;
+    }
+
+    /**
+     * Determines whether request context providers replace a filter that goes over the parser's budget with their
+     * default filter, rather than letting it be rejected.
+     *
+     * @return true if downgrading, false if not
+     * @see com.github.jacquant.squiggly.parser.SquigglyFilterBudget
+     */
+    public static boolean isParserBudgetDowngrade() {
+        return parserBudgetDowngrade;
+    }
+
+    /**
+     * Get the maximum number of ** names in a filter, 0 for no limit.
+     *
+     * @return max
+     * @see com.github.jacquant.squiggly.parser.SquigglyFilterBudget
+     */
+    public static int getParserBudgetMaxDeepWildcards() {
+        return parserBudgetMaxDeepWildcards;
+    }
+
+    /**
+     * Get the maximum nesting depth of a filter, 0 for no limit.
+     *
+     * @return max
+     * @see com.github.jacquant.squiggly.parser.SquigglyFilterBudget
+     */
+    public static int getParserBudgetMaxDepth() {
+        return parserBudgetMaxDepth;
+    }
+
+    /**
+     * Get the maximum number of nodes in a filter, 0 for no limit.
+     *
+     * @return max
+     * @see com.github.jacquant.squiggly.parser.SquigglyFilterBudget
+     */
+    public static int getParserBudgetMaxNodes() {
+        return parserBudgetMaxNodes;
+    }
+
+    /**
+     * Get the maximum total length of the wildcard and regex names in a filter, 0 for no limit.
+     *
+     * @return max
+     * @see com.github.jacquant.squiggly.parser.SquigglyFilterBudget
+     */
+    public static int getParserBudgetMaxPatternComplexity() {
+        return parserBudgetMaxPatternComplexity;
+    }
+
+    /**
+     * Get the {@link CacheBuilderSpec} of the cache of composed filters.
+     *
+     * @return spec
+     * @see com.github.jacquant.squiggly.parser.SquigglyFilterComposer
+     */
+    public static CacheBuilderSpec getParserCompositeCacheSpec() {
+        return parserCompositeCacheSpec;
+    }
+
+    /**
+     * Get the {@link CacheBuilderSpec} of the cache of invalid filter expressions in the squiggly parser.
+     *
+     * @return spec
+     * @see SquigglyParser
+     */
+    public static CacheBuilderSpec getParserErrorCacheSpec() {
+        return parserErrorCacheSpec;
+    }
+
+    /**
+     * Get the named filters, set with parser.namedFilter.&lt;name&gt;=&lt;expression&gt;.
+     *
+     * @return filter expressions by name
+     * @see com.github.jacquant.squiggly.parser.SquigglyNamedFilters
+     */
+    public static SortedMap<String, String> getParserNamedFilters() {
+        return parserNamedFilters;
+    }
+
     /**
      * Get the {@link CacheBuilderSpec} of the node cache in the squiggly parser.
      *
@@ -165,6 +378,17 @@ public class SquigglyConfig {
         return parserNodeCacheSpec;
     }
 
+    /**
+     * Get the engine regex names are matched with: java for java.util.regex, or linear for a matcher that takes time
+     * linear in the length of the name but doesn't support every regex.
+     *
+     * @return engine
+     * @see com.github.jacquant.squiggly.name.RegexName.Engine
+     */
+    public static String getParserRegexEngine() {
+        return parserRegexEngine;
+    }
+
     /**
      * Determines whether or not non-annotated fields are added to the "base" view.
      *
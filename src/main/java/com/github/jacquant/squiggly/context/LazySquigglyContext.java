@@ -5,9 +5,12 @@ import com.github.jacquant.squiggly.parser.SquigglyParser;
 import net.jcip.annotations.NotThreadSafe;
 
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * Squiggly context that loads the parsed nodes on demand.
+ * <p>The parsed nodes can be customized before they're used, for instance by composing them with other filters
+ * through a {@link com.github.jacquant.squiggly.parser.SquigglyFilterComposer}.</p>
  */
 @NotThreadSafe
 public class LazySquigglyContext implements SquigglyContext {
@@ -15,12 +18,19 @@ public class LazySquigglyContext implements SquigglyContext {
     private final Class beanClass;
     private final String filter;
     private List<SquigglyNode> nodes;
+    private List<SquigglyNode> parsedNodes;
     private final SquigglyParser parser;
+    private final UnaryOperator<List<SquigglyNode>> customizer;
 
     public LazySquigglyContext(Class beanClass, SquigglyParser parser, String filter) {
+        this(beanClass, parser, filter, null);
+    }
+
+    public LazySquigglyContext(Class beanClass, SquigglyParser parser, String filter, UnaryOperator<List<SquigglyNode>> customizer) {
         this.beanClass = beanClass;
         this.parser = parser;
         this.filter = filter;
+        this.customizer = customizer;
     }
 
     @Override
@@ -31,14 +41,25 @@ public class LazySquigglyContext implements SquigglyContext {
     @Override
     public List<SquigglyNode> getNodes() {
         if (nodes == null) {
-            nodes = parser.parse(filter);
+            parsedNodes = parser.parse(filter);
+            nodes = (customizer == null) ? parsedNodes : customizer.apply(parsedNodes);
         }
 
         return nodes;
     }
 
+    /**
+     * Get the filter expression.  Once the nodes have been customized into something else, the expression no longer
+     * says what the nodes match, so there's no expression.
+     *
+     * @return filter expression, or null if the nodes were customized
+     */
     @Override
     public String getFilter() {
-        return filter;
+        if (customizer == null || getNodes() == parsedNodes) {
+            return filter;
+        }
+
+        return null;
     }
 }
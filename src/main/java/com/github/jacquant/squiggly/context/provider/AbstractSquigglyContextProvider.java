@@ -5,14 +5,18 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.PropertyWriter;
 import com.github.jacquant.squiggly.context.LazySquigglyContext;
 import com.github.jacquant.squiggly.context.SquigglyContext;
+import com.github.jacquant.squiggly.parser.SquigglyNode;
 import com.github.jacquant.squiggly.parser.SquigglyParser;
 
+import java.util.List;
+
 /**
  * Base implemention of a provider that implements base functionality.
  */
 public abstract class AbstractSquigglyContextProvider implements SquigglyContextProvider {
 
     private final SquigglyParser parser;
+    private final boolean customizingNodes;
 
     public AbstractSquigglyContextProvider() {
         this(new SquigglyParser());
@@ -20,11 +24,12 @@ public abstract class AbstractSquigglyContextProvider implements SquigglyContext
 
     public AbstractSquigglyContextProvider(SquigglyParser parser) {
         this.parser = parser;
+        this.customizingNodes = isOverridden(getClass(), AbstractSquigglyContextProvider.class, "customizeNodes", List.class, Class.class);
     }
 
     @Override
     public SquigglyContext getContext(Class beanClass) {
-        return new LazySquigglyContext(beanClass, parser, getFilter(beanClass));
+        return new LazySquigglyContext(beanClass, parser, getFilter(beanClass), isCustomizingNodes() ? nodes -> customizeNodes(nodes, beanClass) : null);
     }
 
     @Override
@@ -32,6 +37,15 @@ public abstract class AbstractSquigglyContextProvider implements SquigglyContext
         return true;
     }
 
+    /**
+     * Get the parser of the filter expressions.
+     *
+     * @return parser
+     */
+    protected SquigglyParser getParser() {
+        return parser;
+    }
+
     /**
      * Get the filter expression.
      *
@@ -40,6 +54,51 @@ public abstract class AbstractSquigglyContextProvider implements SquigglyContext
      */
     protected abstract String getFilter(Class beanClass);
 
+    /**
+     * Customize the parsed nodes of the filter expression, for instance by wrapping them in an outer field with a
+     * {@link com.github.jacquant.squiggly.parser.SquigglyFilterComposer}.  Unlike changing the expression, the
+     * customized filter is never parsed.
+     *
+     * @param nodes     parsed nodes
+     * @param beanClass class of the top-level bean being filtered
+     * @return customized nodes
+     */
+    protected List<SquigglyNode> customizeNodes(List<SquigglyNode> nodes, Class beanClass) {
+        return nodes;
+    }
+
+    /**
+     * Says whether the provider overrides {@link #customizeNodes(List, Class)}.  Contexts of a provider that doesn't
+     * customize its nodes only parse the filter expression when the nodes are needed.
+     *
+     * @return true if the nodes are customized, false if not
+     */
+    protected boolean isCustomizingNodes() {
+        return customizingNodes;
+    }
+
+    /**
+     * Says whether a class overrides a method declared by one of its superclasses.
+     *
+     * @param type           class
+     * @param declaringClass superclass declaring the method
+     * @param name           name of the method
+     * @param parameterTypes parameter types of the method
+     * @return true if overridden, false if not
+     */
+    protected static boolean isOverridden(Class<?> type, Class<?> declaringClass, String name, Class<?>... parameterTypes) {
+        for (; type != null && type != declaringClass; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // keep looking in the superclass
+            }
+        }
+
+        return false;
+    }
+
 
     @Override
     public void serializeAsIncludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
@@ -0,0 +1,119 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.github.jacquant.squiggly.match.SquigglyMatchState;
+import com.github.jacquant.squiggly.match.SquigglyMatcher;
+
+import java.util.Arrays;
+
+/*
+    Tracks the match state of every object currently being serialized.  The bottom of the stack is the state of the
+    root filter and every included field pushes the state of its value, so a field decision only needs a single
+    transition from its parent's state.  The stack lives in the per-call attributes of the SerializerProvider, along
+    with the session of the call.
+
+    Each entry remembers the output context of the object whose field pushed it.  Objects the filter doesn't see, like
+    types out of the squiggly scope, push nothing, so an object below them finds an entry that isn't its parent's.  It
+    then resumes the path from the output contexts in between, and the resumed entry remembers the value it was resumed
+    from, since Jackson reuses output contexts for sibling objects.
+ */
+class PathStack {
+
+    private static final String ATTRIBUTE_KEY = PathStack.class.getName();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private SquigglySession session;
+    private SquigglyMatcher matcher;
+    private SquigglyMatchState[] states = new SquigglyMatchState[INITIAL_CAPACITY];
+    private JsonStreamContext[] contexts = new JsonStreamContext[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    public static PathStack getOrCreate(SerializerProvider provider) {
+        PathStack stack = (PathStack) provider.getAttribute(ATTRIBUTE_KEY);
+
+        if (stack == null) {
+            stack = new PathStack();
+            provider.setAttribute(ATTRIBUTE_KEY, stack);
+        }
+
+        return stack;
+    }
+
+    public SquigglySession getSession() {
+        return session;
+    }
+
+    public void setSession(SquigglySession session) {
+        this.session = session;
+    }
+
+    // true when no field of an enclosing object is being serialized
+    public boolean isAtRoot() {
+        return size <= 1;
+    }
+
+    public void reset(SquigglyMatcher matcher, SquigglyMatchState rootState) {
+        this.matcher = matcher;
+        truncate(0);
+        push(rootState, null, null);
+    }
+
+    public SquigglyMatcher getMatcher() {
+        return matcher;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public SquigglyMatchState peek() {
+        return states[size - 1];
+    }
+
+    // the output context of the object whose field pushed the top entry, null for the root
+    public JsonStreamContext peekContext() {
+        return contexts[size - 1];
+    }
+
+    // true when the top entry was resumed from output contexts rather than pushed by a field
+    public boolean isResumed() {
+        return size > 0 && values[size - 1] != null;
+    }
+
+    // true when the top entry was resumed for the current value of the context
+    public boolean isResumedAt(JsonStreamContext context) {
+        return contexts[size - 1] == context && values[size - 1] == context.getCurrentValue();
+    }
+
+    public void push(SquigglyMatchState state, JsonStreamContext context) {
+        push(state, context, null);
+    }
+
+    public void resume(SquigglyMatchState state, JsonStreamContext context) {
+        push(state, context, context.getCurrentValue());
+    }
+
+    // drop the entries above the given size, including entries resumed while they were pushed
+    public void truncate(int newSize) {
+        while (size > newSize) {
+            size--;
+            states[size] = null;
+            contexts[size] = null;
+            values[size] = null;
+        }
+    }
+
+    private void push(SquigglyMatchState state, JsonStreamContext context, Object value) {
+        if (size == states.length) {
+            states = Arrays.copyOf(states, size * 2);
+            contexts = Arrays.copyOf(contexts, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        states[size] = state;
+        contexts[size] = context;
+        values[size++] = value;
+    }
+}
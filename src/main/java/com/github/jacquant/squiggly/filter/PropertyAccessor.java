@@ -0,0 +1,160 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BooleanSerializer;
+import com.fasterxml.jackson.databind.ser.std.NumberSerializers;
+import com.fasterxml.jackson.databind.ser.std.StringSerializer;
+import com.google.common.cache.Cache;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/*
+    Writes a simple property (a string, number or boolean read by a getter) straight to the generator.  The getter is
+    called through a LambdaMetafactory function instead of reflection.  The function is spun as a hidden class nested
+    in the bean class, so it can be unloaded along with the bean's class loader.
+ */
+class PropertyAccessor {
+
+    // marks getters that can't be called through a generated function
+    private static final Function<Object, Object> UNAVAILABLE = bean -> null;
+
+    private enum Kind {
+        STRING(String.class, String.class, StringSerializer.class),
+        INT(int.class, Integer.class, NumberSerializers.IntegerSerializer.class),
+        LONG(long.class, Long.class, NumberSerializers.LongSerializer.class),
+        DOUBLE(double.class, Double.class, NumberSerializers.DoubleSerializer.class),
+        BOOLEAN(boolean.class, Boolean.class, BooleanSerializer.class);
+
+        private final Class type;
+        private final Class boxedType;
+        private final Class serializerClass;
+
+        Kind(Class type, Class boxedType, Class serializerClass) {
+            this.type = type;
+            this.boxedType = boxedType;
+            this.serializerClass = serializerClass;
+        }
+    }
+
+    private final BeanPropertyWriter writer;
+    private final Function<Object, Object> getter;
+    private final Kind kind;
+
+    private PropertyAccessor(BeanPropertyWriter writer, Function<Object, Object> getter, Kind kind) {
+        this.writer = writer;
+        this.getter = getter;
+        this.kind = kind;
+    }
+
+    // create an accessor for the writer, or return null if the property needs the full writer
+    public static PropertyAccessor create(BeanPropertyWriter writer, Cache<Method, Function<Object, Object>> getters) {
+        Kind kind = getKind(writer);
+
+        if (kind == null) {
+            return null;
+        }
+
+        Method method = ((AnnotatedMethod) writer.getMember()).getAnnotated();
+        Function<Object, Object> getter;
+
+        try {
+            getter = getters.get(method, () -> generateGetter(method));
+        } catch (ExecutionException e) {
+            return null;
+        }
+
+        return (getter == UNAVAILABLE) ? null : new PropertyAccessor(writer, getter, kind);
+    }
+
+    private static Kind getKind(BeanPropertyWriter writer) {
+        AnnotatedMember member = writer.getMember();
+
+        if (writer.getClass() != BeanPropertyWriter.class
+                || !(member instanceof AnnotatedMethod)
+                || ((AnnotatedMethod) member).getParameterCount() != 0
+                || member.hasAnnotation(JsonInclude.class)
+                || writer.willSuppressNulls()
+                || !writer.hasNullSerializer()
+                || writer.getTypeSerializer() != null
+                || writer.getViews() != null
+                || !writer.hasSerializer()) {
+            return null;
+        }
+
+        Class type = writer.getType().getRawClass();
+        Class serializerClass = writer.getSerializer().getClass();
+
+        // the standard serializers, anything else (formats, custom serializers) changes the output
+        for (Kind kind : Kind.values()) {
+            if (kind.serializerClass == serializerClass && (kind.type == type || kind.boxedType == type)) {
+                return kind;
+            }
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> generateGetter(Method method) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            return UNAVAILABLE;
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup,
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    handle.type().wrap());
+            return (Function<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            // modules that aren't open to us, hidden bean classes, etc.  the regular writer still works there
+            return UNAVAILABLE;
+        }
+    }
+
+    public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider provider) throws Exception {
+        Object value = getter.apply(bean);
+
+        if (value == null) {
+            writer.serializeAsField(bean, gen, provider);
+            return;
+        }
+
+        gen.writeFieldName(writer.getSerializedName());
+
+        switch (kind) {
+            case STRING:
+                gen.writeString((String) value);
+                break;
+            case INT:
+                gen.writeNumber((Integer) value);
+                break;
+            case LONG:
+                gen.writeNumber((Long) value);
+                break;
+            case DOUBLE:
+                gen.writeNumber((Double) value);
+                break;
+            case BOOLEAN:
+                gen.writeBoolean((Boolean) value);
+                break;
+        }
+    }
+}
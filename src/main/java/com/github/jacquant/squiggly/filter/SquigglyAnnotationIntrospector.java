@@ -0,0 +1,30 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Annotation introspector that registers the filter id for the @{@link SquigglyPropertyFilter} on the types of a
+ * @{@link SquigglyScope}.  It replaces the @{@link SquigglyPropertyFilterMixin} on Object, which applies the filter to
+ * every type.
+ */
+@ThreadSafe
+public class SquigglyAnnotationIntrospector extends NopAnnotationIntrospector {
+
+    private final SquigglyScope scope;
+
+    public SquigglyAnnotationIntrospector(SquigglyScope scope) {
+        this.scope = scope;
+    }
+
+    @Override
+    public Object findFilterId(Annotated annotated) {
+        if (annotated instanceof AnnotatedClass && scope.includes(annotated.getRawType())) {
+            return SquigglyPropertyFilter.FILTER_ID;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,403 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.BeanAsArraySerializer;
+import com.fasterxml.jackson.databind.ser.impl.ObjectIdWriter;
+import com.fasterxml.jackson.databind.ser.impl.UnwrappingBeanSerializer;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import com.github.jacquant.squiggly.match.SquigglyIncludeMask;
+import com.github.jacquant.squiggly.match.SquigglyMatchState;
+import com.github.jacquant.squiggly.match.SquigglyMatcher;
+import com.github.jacquant.squiggly.metric.source.GuavaCacheSquigglyMetricsSource;
+import com.github.jacquant.squiggly.metric.source.SquigglyMetricsSource;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A bean serializer that delegates to a copy of itself pruned to the properties included by the current filter state.
+ * <p>The pruned copies are built once per filter state and cached, so excluded properties are never visited.  Beans
+ * that can't be pruned (no squiggly filter registered, any-getters, generators that can't omit fields or path
+ * tracking disabled) are filtered property by property through the @{@link SquigglyPropertyFilter}.  Once the path
+ * reaches **, beans are written with all their properties without pruning, and only push the include-all state once, as
+ * a marker that keeps nested beans in the session of the call, rather than a state per property.</p>
+ * <p>When accessor generation is enabled, strings, numbers and booleans read by a getter are written straight to the
+ * generator through a getter function generated with {@link java.lang.invoke.LambdaMetafactory}, bypassing the
+ * property writer.  Accessors aren't used when the context provider overrides
+ * {@link com.github.jacquant.squiggly.context.provider.SquigglyContextProvider#serializeAsIncludedField}.</p>
+ */
+@ThreadSafe
+public class SquigglyBeanSerializer extends BeanSerializerBase {
+
+    /**
+     * Cache of the functions generated to call property getters.
+     */
+    private static final Cache<Method, Function<Object, Object>> GETTER_CACHE;
+    private static final SquigglyMetricsSource METRICS_SOURCE;
+
+    static {
+        GETTER_CACHE = CacheBuilder.from(SquigglyConfig.getFilterAccessorCacheSpec()).weakKeys().build();
+        METRICS_SOURCE = new GuavaCacheSquigglyMetricsSource("squiggly.filter.accessorCache.", GETTER_CACHE);
+    }
+
+    private final boolean generateAccessors;
+
+    // pruned serializers are keyed by state identity and go away with the matcher that created the state
+    private final Cache<SquigglyMatchState, JsonSerializer<Object>> prunedSerializers = CacheBuilder.newBuilder().weakKeys().build();
+    private volatile PrunedBeanSerializer unfilteredSerializer;
+    private volatile PrunedBeanSerializer includeAllSerializer;
+    private volatile PrunedBeanSerializer plainSerializer;
+
+    public SquigglyBeanSerializer(BeanSerializerBase src) {
+        this(src, SquigglyConfig.isFilterGenerateAccessors());
+    }
+
+    /**
+     * Construct with an explicit accessor generation mode.
+     *
+     * @param src               the serializer to copy
+     * @param generateAccessors whether simple properties are read through generated accessors and written directly
+     */
+    public SquigglyBeanSerializer(BeanSerializerBase src, boolean generateAccessors) {
+        super(src);
+        this.generateAccessors = generateAccessors;
+    }
+
+    protected SquigglyBeanSerializer(SquigglyBeanSerializer src, ObjectIdWriter objectIdWriter, Object filterId) {
+        super(src, objectIdWriter, filterId);
+        this.generateAccessors = src.generateAccessors;
+    }
+
+    protected SquigglyBeanSerializer(SquigglyBeanSerializer src, Set<String> toIgnore, Set<String> toInclude) {
+        super(src, toIgnore, toInclude);
+        this.generateAccessors = src.generateAccessors;
+    }
+
+    protected SquigglyBeanSerializer(SquigglyBeanSerializer src, BeanPropertyWriter[] properties, BeanPropertyWriter[] filteredProperties) {
+        super(src, properties, filteredProperties);
+        this.generateAccessors = src.generateAccessors;
+    }
+
+    @Override
+    public JsonSerializer<Object> unwrappingSerializer(NameTransformer unwrapper) {
+        return new UnwrappingBeanSerializer(this, unwrapper);
+    }
+
+    @Override
+    public BeanSerializerBase withObjectIdWriter(ObjectIdWriter objectIdWriter) {
+        return new SquigglyBeanSerializer(this, objectIdWriter, _propertyFilterId);
+    }
+
+    @Override
+    public BeanSerializerBase withFilterId(Object filterId) {
+        return new SquigglyBeanSerializer(this, _objectIdWriter, filterId);
+    }
+
+    @Override
+    protected BeanSerializerBase withByNameInclusion(Set<String> toIgnore, Set<String> toInclude) {
+        return new SquigglyBeanSerializer(this, toIgnore, toInclude);
+    }
+
+    @Override
+    protected BeanSerializerBase withProperties(BeanPropertyWriter[] properties, BeanPropertyWriter[] filteredProperties) {
+        return new SquigglyBeanSerializer(this, properties, filteredProperties);
+    }
+
+    @Override
+    protected BeanSerializerBase asArraySerializer() {
+        if ((_objectIdWriter == null) && (_anyGetterWriter == null) && (_propertyFilterId == null)) {
+            return new BeanAsArraySerializer(this);
+        }
+
+        return this;
+    }
+
+    @Override
+    public void serialize(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        JsonSerializer<Object> serializer = findSerializer(bean, gen, provider);
+
+        if (serializer != null) {
+            serializer.serialize(bean, gen, provider);
+            return;
+        }
+
+        if (_objectIdWriter != null) {
+            _serializeWithObjectId(bean, gen, provider, true);
+            return;
+        }
+
+        gen.writeStartObject(bean);
+
+        if (_propertyFilterId != null) {
+            serializeFieldsFiltered(bean, gen, provider);
+        } else {
+            serializeFields(bean, gen, provider);
+        }
+
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(Object bean, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        JsonSerializer<Object> serializer = findSerializer(bean, gen, provider);
+
+        if (serializer != null) {
+            serializer.serializeWithType(bean, gen, provider, typeSer);
+        } else {
+            super.serializeWithType(bean, gen, provider, typeSer);
+        }
+    }
+
+    // find the serializer for the bean's filter state, or null when the bean has to be filtered field by field
+    private JsonSerializer<Object> findSerializer(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (_propertyFilterId == null || !gen.canOmitFields()) {
+            return null;
+        }
+
+        PropertyFilter propertyFilter = findPropertyFilter(provider, _propertyFilterId, bean);
+
+        if (!(propertyFilter instanceof SquigglyPropertyFilter)) {
+            return null;
+        }
+
+        SquigglyPropertyFilter filter = (SquigglyPropertyFilter) propertyFilter;
+
+        if (!filter.isTrackingPathIncrementally()) {
+            return null;
+        }
+
+        PathStack stack = filter.getPathStack(bean, gen, false, provider);
+
+        if (!stack.getSession().isFilteringEnabled()) {
+            return SquigglyConfig.isFilterPlainSerializerWhenDisabled() ? getPlainSerializer() : getUnfilteredSerializer(filter);
+        }
+
+        SquigglyMatchState state = stack.peek();
+
+        // nothing below ** needs a state of its own, so the whole subtree is written without pruning
+        if (state.isIncludeAll()) {
+            return getIncludeAllSerializer(filter);
+        }
+
+        // any-getter entries are only filtered by the property filter
+        if (_anyGetterWriter != null) {
+            return null;
+        }
+
+        JsonSerializer<Object> serializer = prunedSerializers.getIfPresent(state);
+
+        if (serializer == null) {
+            serializer = prune(filter, stack.getMatcher(), state);
+            prunedSerializers.put(state, serializer);
+        }
+
+        return serializer;
+    }
+
+    private JsonSerializer<Object> getUnfilteredSerializer(SquigglyPropertyFilter filter) {
+        PrunedBeanSerializer serializer = unfilteredSerializer;
+
+        if (serializer == null || serializer.filter != filter) {
+            serializer = new PrunedBeanSerializer(this, _props, _filteredProps, null, createAccessors(_props, filter), filter, false);
+            unfilteredSerializer = serializer;
+        }
+
+        return serializer;
+    }
+
+    private JsonSerializer<Object> getIncludeAllSerializer(SquigglyPropertyFilter filter) {
+        PrunedBeanSerializer serializer = includeAllSerializer;
+
+        if (serializer == null || serializer.filter != filter) {
+            serializer = new PrunedBeanSerializer(this, _props, _filteredProps, null, createAccessors(_props, filter), filter, true);
+            includeAllSerializer = serializer;
+        }
+
+        return serializer;
+    }
+
+    private JsonSerializer<Object> getPlainSerializer() {
+        PrunedBeanSerializer serializer = plainSerializer;
+
+        if (serializer == null) {
+            serializer = new PrunedBeanSerializer(this, _props, _filteredProps, null, null, null, false);
+            plainSerializer = serializer;
+        }
+
+        return serializer;
+    }
+
+    // copy this serializer keeping only the properties included by the state
+    private JsonSerializer<Object> prune(SquigglyPropertyFilter filter, SquigglyMatcher matcher, SquigglyMatchState state) {
+        Class beanClass = handledType();
+        List<String> names = new ArrayList<>(_props.length);
+
+        for (BeanPropertyWriter prop : _props) {
+            names.add(prop.getName());
+        }
+
+        SquigglyIncludeMask includeMask = matcher.includeMask(state, beanClass, names);
+        List<BeanPropertyWriter> props = new ArrayList<>();
+        List<BeanPropertyWriter> filteredProps = new ArrayList<>();
+        List<SquigglyMatchState> states = new ArrayList<>();
+
+        for (int i = 0; i < _props.length; i++) {
+            String name = _props[i].getName();
+            int ordinal = includeMask.ordinal(name);
+            SquigglyMatchState propState = (ordinal < 0) ? matcher.next(state, name, beanClass) : includeMask.getState(ordinal);
+
+            if (propState == null) {
+                continue;
+            }
+
+            props.add(_props[i]);
+            states.add(propState);
+
+            if (_filteredProps != null) {
+                filteredProps.add(_filteredProps[i]);
+            }
+        }
+
+        BeanPropertyWriter[] propArray = props.toArray(new BeanPropertyWriter[0]);
+
+        return new PrunedBeanSerializer(this,
+                propArray,
+                (_filteredProps == null) ? null : filteredProps.toArray(new BeanPropertyWriter[0]),
+                states.toArray(new SquigglyMatchState[0]),
+                createAccessors(propArray, filter),
+                filter,
+                false);
+    }
+
+    // generated accessors by property index, or null when accessors aren't generated.  accessors write to the generator
+    // directly, so they're not used when the context provider has its own hook for writing included fields.
+    private PropertyAccessor[] createAccessors(BeanPropertyWriter[] props, SquigglyPropertyFilter filter) {
+        if (!generateAccessors || filter.hasCustomIncludedFieldHook()) {
+            return null;
+        }
+
+        PropertyAccessor[] accessors = new PropertyAccessor[props.length];
+
+        for (int i = 0; i < props.length; i++) {
+            accessors[i] = PropertyAccessor.create(props[i], GETTER_CACHE);
+        }
+
+        return accessors;
+    }
+
+    public static SquigglyMetricsSource getMetricsSource() {
+        return METRICS_SOURCE;
+    }
+
+    /*
+        A plain bean serializer over a subset of the properties.  Each property pushes the state of its value while it
+        is serialized, so nested beans and maps pick up where this bean left off.  A null state array means filtering is
+        disabled and nothing needs to be tracked, and a null filter means the fields are written by Jackson as is.  Below
+        ** the include-all state on top of the stack is pushed once for the whole bean instead.
+     */
+    private static class PrunedBeanSerializer extends BeanSerializer {
+
+        private final SquigglyMatchState[] states;
+        private final PropertyAccessor[] accessors;
+        private final SquigglyPropertyFilter filter;
+        private final boolean includeAll;
+
+        public PrunedBeanSerializer(BeanSerializerBase src, BeanPropertyWriter[] properties, BeanPropertyWriter[] filteredProperties,
+                                    SquigglyMatchState[] states, PropertyAccessor[] accessors, SquigglyPropertyFilter filter,
+                                    boolean includeAll) {
+            super(src, properties, filteredProperties);
+            this.states = states;
+            this.accessors = accessors;
+            this.filter = filter;
+            this.includeAll = includeAll;
+        }
+
+        @Override
+        protected void serializeFieldsFiltered(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            serializeFields(bean, gen, provider);
+        }
+
+        @Override
+        protected void serializeFields(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (filter == null) {
+                super.serializeFields(bean, gen, provider);
+                return;
+            }
+
+            if (includeAll) {
+                PathStack stack = PathStack.getOrCreate(provider);
+                int size = stack.size();
+                stack.push(stack.peek(), gen.getOutputContext());
+
+                try {
+                    serializeIncludedFields(bean, gen, provider);
+                } finally {
+                    stack.truncate(size);
+                }
+
+                return;
+            }
+
+            serializeIncludedFields(bean, gen, provider);
+        }
+
+        private void serializeIncludedFields(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            BeanPropertyWriter[] props = (_filteredProps != null && provider.getActiveView() != null) ? _filteredProps : _props;
+            PathStack stack = (states == null) ? null : PathStack.getOrCreate(provider);
+            PropertyAccessor[] accessors = (props == _props) ? this.accessors : null;
+            int i = 0;
+
+            try {
+                for (; i < props.length; i++) {
+                    BeanPropertyWriter prop = props[i];
+
+                    if (prop == null) {
+                        continue;
+                    }
+
+                    // simple values have no nested state to track
+                    if (accessors != null && accessors[i] != null) {
+                        accessors[i].serializeAsField(bean, gen, provider);
+                        continue;
+                    }
+
+                    if (stack == null) {
+                        filter.serializeAsIncludedField(bean, gen, provider, prop);
+                        continue;
+                    }
+
+                    int size = stack.size();
+                    stack.push(states[i], gen.getOutputContext());
+
+                    try {
+                        filter.serializeAsIncludedField(bean, gen, provider, prop);
+                    } finally {
+                        stack.truncate(size);
+                    }
+                }
+
+                if (_anyGetterWriter != null) {
+                    _anyGetterWriter.getAndSerialize(bean, gen, provider);
+                }
+            } catch (Exception e) {
+                String name = (i == props.length) ? "[anySetter]" : props[i].getName();
+                wrapAndThrow(provider, e, bean, name);
+            }
+        }
+    }
+}
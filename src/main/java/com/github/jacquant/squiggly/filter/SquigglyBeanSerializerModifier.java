@@ -0,0 +1,42 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Replaces the standard Jackson bean serializers with @{@link SquigglyBeanSerializer}s.
+ */
+@ThreadSafe
+public class SquigglyBeanSerializerModifier extends BeanSerializerModifier {
+
+    private final boolean generateAccessors;
+
+    public SquigglyBeanSerializerModifier() {
+        this(SquigglyConfig.isFilterGenerateAccessors());
+    }
+
+    /**
+     * Construct with an explicit accessor generation mode.
+     *
+     * @param generateAccessors whether simple properties are read through generated accessors and written directly
+     */
+    public SquigglyBeanSerializerModifier(boolean generateAccessors) {
+        this.generateAccessors = generateAccessors;
+    }
+
+    @Override
+    public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+        // only plain bean serializers of filtered types, anything else is left alone
+        if (serializer.getClass() == BeanSerializer.class
+                && config.getAnnotationIntrospector().findFilterId(beanDesc.getClassInfo()) != null) {
+            return new SquigglyBeanSerializer((BeanSerializer) serializer, generateAccessors);
+        }
+
+        return serializer;
+    }
+}
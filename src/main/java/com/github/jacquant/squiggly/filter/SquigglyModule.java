@@ -0,0 +1,48 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.Module;
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Jackson module that serializes beans with serializers pruned to the properties selected by the
+ * @{@link SquigglyPropertyFilter}.
+ * <p>The module works alongside the filter, which still needs to be registered (see
+ * {@link com.github.jacquant.squiggly.Squiggly#init}), and produces the same output.  It only changes how beans are
+ * visited: the filter decisions for a bean class are made once per position in the filter and the excluded properties
+ * are skipped altogether.</p>
+ */
+@ThreadSafe
+public class SquigglyModule extends Module {
+
+    private final boolean generateAccessors;
+
+    public SquigglyModule() {
+        this(SquigglyConfig.isFilterGenerateAccessors());
+    }
+
+    /**
+     * Construct with an explicit accessor generation mode, overriding filter.generateAccessors.
+     *
+     * @param generateAccessors whether simple properties are read through generated accessors and written directly
+     */
+    public SquigglyModule(boolean generateAccessors) {
+        this.generateAccessors = generateAccessors;
+    }
+
+    @Override
+    public String getModuleName() {
+        return SquigglyModule.class.getSimpleName();
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        context.addBeanSerializerModifier(new SquigglyBeanSerializerModifier(generateAccessors));
+    }
+}
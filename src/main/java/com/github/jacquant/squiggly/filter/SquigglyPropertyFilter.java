@@ -2,32 +2,35 @@ package com.github.jacquant.squiggly.filter;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
 import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
-import com.github.jacquant.squiggly.bean.BeanInfo;
 import com.github.jacquant.squiggly.bean.BeanInfoIntrospector;
 import com.github.jacquant.squiggly.config.SquigglyConfig;
 import com.github.jacquant.squiggly.context.SquigglyContext;
+import com.github.jacquant.squiggly.context.provider.AbstractSquigglyContextProvider;
 import com.github.jacquant.squiggly.context.provider.SquigglyContextProvider;
-import com.github.jacquant.squiggly.metric.source.GuavaCacheSquigglyMetricsSource;
+import com.github.jacquant.squiggly.match.SquigglyDecisionCache;
+import com.github.jacquant.squiggly.match.SquigglyIncludeMask;
+import com.github.jacquant.squiggly.match.SquigglyMatchState;
+import com.github.jacquant.squiggly.match.SquigglyMatcher;
 import com.github.jacquant.squiggly.metric.source.SquigglyMetricsSource;
 import com.github.jacquant.squiggly.name.AnyDeepName;
-import com.github.jacquant.squiggly.name.ExactName;
 import com.github.jacquant.squiggly.parser.SquigglyNode;
-import com.github.jacquant.squiggly.view.PropertyView;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.Sets;
 import net.jcip.annotations.ThreadSafe;
-import org.apache.commons.lang3.tuple.Pair;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 
 /**
@@ -72,19 +75,23 @@ public class SquigglyPropertyFilter extends SimpleBeanPropertyFilter {
     public static final String FILTER_ID = "squigglyFilter";
 
     /**
-     * Cache that stores previous evalulated matches.
+     * Cache that stores the include masks of previously evaluated (filter, path state, bean class) combinations.
      */
-    private static final Cache<Pair<Path, String>, Boolean> MATCH_CACHE;
+    private static final SquigglyDecisionCache DECISION_CACHE;
     private static final SquigglyMetricsSource METRICS_SOURCE;
-    private static final List<SquigglyNode> BASE_VIEW_NODES = Collections.singletonList(new SquigglyNode(new ExactName(PropertyView.BASE_VIEW), Collections.<SquigglyNode>emptyList(), false, true, false));
 
     static {
-        MATCH_CACHE = CacheBuilder.from(SquigglyConfig.getFilterPathCacheSpec()).build();
-        METRICS_SOURCE = new GuavaCacheSquigglyMetricsSource("squiggly.filter.pathCache.", MATCH_CACHE);
+        DECISION_CACHE = new SquigglyDecisionCache(SquigglyConfig.getFilterDecisionCacheSize());
+        METRICS_SOURCE = DECISION_CACHE.getMetricsSource("squiggly.filter.decisionCache.");
     }
 
     private final BeanInfoIntrospector beanInfoIntrospector;
     private final SquigglyContextProvider contextProvider;
+    private final boolean customIncludedFieldHook;
+    private final boolean trackPathIncrementally;
+    // keyed by the identity of the interned node list, which stands for every filter parsing to it.  a matcher holds its
+    // nodes, so it's softly referenced, or the weak key could never be cleared.
+    private final Cache<List<SquigglyNode>, SquigglyMatcher> matchers = CacheBuilder.newBuilder().weakKeys().softValues().build();
 
     /**
      * Construct with a specified context provider.
@@ -102,27 +109,52 @@ public class SquigglyPropertyFilter extends SimpleBeanPropertyFilter {
      * @param beanInfoIntrospector introspector
      */
     public SquigglyPropertyFilter(SquigglyContextProvider contextProvider, BeanInfoIntrospector beanInfoIntrospector) {
+        this(contextProvider, beanInfoIntrospector, SquigglyConfig.isFilterTrackPathIncrementally());
+    }
+
+    /**
+     * Construct with a context provider, an introspector and the way the path of a field is found.
+     *
+     * @param contextProvider        context provider
+     * @param beanInfoIntrospector   introspector
+     * @param trackPathIncrementally true to track the path as objects are serialized, false to walk the output contexts
+     *                               of every field, which overrides filter.trackPathIncrementally
+     */
+    public SquigglyPropertyFilter(SquigglyContextProvider contextProvider, BeanInfoIntrospector beanInfoIntrospector, boolean trackPathIncrementally) {
         this.contextProvider = contextProvider;
         this.beanInfoIntrospector = beanInfoIntrospector;
+        this.customIncludedFieldHook = isCustomIncludedFieldHook(contextProvider);
+        this.trackPathIncrementally = trackPathIncrementally;
     }
 
-    // create a path structure representing the object graph
-    private Path getPath(PropertyWriter writer, JsonStreamContext sc) {
-        LinkedList<PathElement> elements = new LinkedList<>();
-
-        if (sc != null) {
-            elements.add(new PathElement(writer.getName(), sc.getCurrentValue()));
-            sc = sc.getParent();
+    // whether the provider writes included fields itself, rather than with the default of the abstract provider
+    private static boolean isCustomIncludedFieldHook(SquigglyContextProvider contextProvider) {
+        try {
+            Method hook = contextProvider.getClass().getMethod("serializeAsIncludedField", Object.class, JsonGenerator.class, SerializerProvider.class, PropertyWriter.class);
+            return hook.getDeclaringClass() != AbstractSquigglyContextProvider.class;
+        } catch (NoSuchMethodException e) {
+            return true;
         }
+    }
 
-        while (sc != null) {
-            if (sc.getCurrentName() != null && sc.getCurrentValue() != null) {
-                elements.addFirst(new PathElement(sc.getCurrentName(), sc.getCurrentValue()));
-            }
-            sc = sc.getParent();
-        }
+    /**
+     * Says whether the context provider overrides {@link SquigglyContextProvider#serializeAsIncludedField}, in which
+     * case every included field has to be written through it.
+     *
+     * @return true if the hook is overridden, false if not
+     */
+    public boolean hasCustomIncludedFieldHook() {
+        return customIncludedFieldHook;
+    }
 
-        return new Path(elements);
+    /**
+     * Says whether the path of a field is tracked as objects are serialized, rather than walked from the output contexts
+     * of every field.
+     *
+     * @return true if tracked incrementally, false if not
+     */
+    public boolean isTrackingPathIncrementally() {
+        return trackPathIncrementally;
     }
 
     private JsonStreamContext getStreamContext(JsonGenerator jgen) {
@@ -140,7 +172,7 @@ public class SquigglyPropertyFilter extends SimpleBeanPropertyFilter {
         throw new UnsupportedOperationException("Cannot call include without JsonGenerator");
     }
 
-    protected boolean include(final PropertyWriter writer, final JsonGenerator jgen) {
+    protected boolean include(final PropertyWriter writer, final JsonGenerator jgen, final SerializerProvider provider) throws JsonMappingException {
         if (!contextProvider.isFilteringEnabled()) {
             return true;
         }
@@ -151,8 +183,7 @@ public class SquigglyPropertyFilter extends SimpleBeanPropertyFilter {
             return true;
         }
 
-        Path path = getPath(writer, streamContext);
-        SquigglyContext context = contextProvider.getContext(path.getFirst().getBeanClass());
+        SquigglyContext context = contextProvider.getContext(getRootValue(streamContext).getClass());
         String filter = context.getFilter();
 
 
@@ -160,284 +191,254 @@ public class SquigglyPropertyFilter extends SimpleBeanPropertyFilter {
             return true;
         }
 
-        if (path.isCachable()) {
-            // cache the match result using the path and filter expression
-            Pair<Path, String> pair = Pair.of(path, filter);
-            Boolean match = MATCH_CACHE.getIfPresent(pair);
-
-            if (match == null) {
-                match = pathMatches(path, context);
-            }
+        SquigglyMatcher matcher = getMatcher(context);
+        SquigglyMatchState state = getState(streamContext.getParent(), matcher);
 
-            MATCH_CACHE.put(pair, match);
-            return match;
+        if (state == null) {
+            return false;
         }
 
-        return pathMatches(path, context);
-    }
-
-    // perform the actual matching
-    private boolean pathMatches(Path path, SquigglyContext context) {
-        List<SquigglyNode> nodes = context.getNodes();
-        Set<String> viewStack = null;
-        SquigglyNode viewNode = null;
-
-        int pathSize = path.getElements().size();
-        int lastIdx = pathSize - 1;
+        if (state.isIncludeAll()) {
+            return true;
+        }
 
-        for (int i = 0; i < pathSize; i++) {
-            PathElement element = path.getElements().get(i);
+        Class beanClass = streamContext.getCurrentValue().getClass();
 
-            if (viewNode != null && !viewNode.isSquiggly()) {
-                Class beanClass = element.getBeanClass();
+        if (Map.class.isAssignableFrom(beanClass)) {
+            return matcher.matches(state, writer.getName(), beanClass);
+        }
 
-                if (beanClass != null && !Map.class.isAssignableFrom(beanClass)) {
-                    Set<String> propertyNames = getPropertyNamesFromViewStack(element, viewStack);
+        // cache the include mask using the state of the path, which belongs to the filter, and the bean class
+        SquigglyIncludeMask includeMask = (SquigglyIncludeMask) DECISION_CACHE.get(state, beanClass);
 
-                    if (!propertyNames.contains(element.getName())) {
-                        return false;
-                    }
-                }
+        if (includeMask == null) {
+            includeMask = matcher.includeMask(state, beanClass, getPropertyNames(provider, beanClass));
+            DECISION_CACHE.put(state, beanClass, includeMask);
+        }
 
-            } else if (nodes.isEmpty()) {
-                return false;
-            } else {
+        int ordinal = includeMask.ordinal(writer.getName());
 
-                SquigglyNode match = findBestSimpleNode(element, nodes);
+        if (ordinal < 0) {
+            return matcher.matches(state, writer.getName(), beanClass);
+        }
 
-                if (match == null) {
-                    match = findBestViewNode(element, nodes);
+        return includeMask.isIncluded(ordinal);
+    }
 
-                    if (match != null) {
-                        viewNode = match;
-                        viewStack = addToViewStack(viewStack, viewNode);
-                    }
-                } else if (match.isAnyShallow()) {
-                    viewNode = match;
-                } else if (match.isAnyDeep()) {
-                    return true;
-                }
+    // the outermost object of the path, which the context is resolved for
+    private Object getRootValue(JsonStreamContext streamContext) {
+        Object root = streamContext.getCurrentValue();
 
-                if (match == null) {
-                    if (isJsonUnwrapped(element)) {
-                        continue;
-                    }
+        for (JsonStreamContext sc = streamContext.getParent(); sc != null; sc = sc.getParent()) {
+            if (sc.getCurrentName() != null && sc.getCurrentValue() != null) {
+                root = sc.getCurrentValue();
+            }
+        }
 
-                    return false;
-                }
+        return root;
+    }
 
-                if (match.isNegated()) {
-                    return false;
-                }
+    // walk the path from the root, skipping contexts without a named value (arrays and the root context)
+    private SquigglyMatchState getState(JsonStreamContext sc, SquigglyMatcher matcher) {
+        if (sc == null) {
+            return matcher.getRootState();
+        }
 
-                nodes = match.getChildren();
+        SquigglyMatchState state = getState(sc.getParent(), matcher);
 
-                if (i < lastIdx && nodes.isEmpty() && !match.isEmptyNested() && SquigglyConfig.isFilterImplicitlyIncludeBaseFields()) {
-                    nodes = BASE_VIEW_NODES;
-                }
-            }
+        if (state == null || state.isIncludeAll() || sc.getCurrentName() == null || sc.getCurrentValue() == null) {
+            return state;
         }
 
-        return true;
+        return matcher.next(state, sc.getCurrentName(), sc.getCurrentValue().getClass());
     }
 
-    private boolean isJsonUnwrapped(PathElement element) {
-        BeanInfo info = beanInfoIntrospector.introspect(element.getBeanClass());
-        return info.isUnwrapped(element.getName());
-    }
+    // filters are compiled once per parsed node list
+    SquigglyMatcher getMatcher(SquigglyContext context) {
+        List<SquigglyNode> nodes = context.getNodes();
+        SquigglyMatcher matcher = matchers.getIfPresent(nodes);
 
-    private Set<String> getPropertyNamesFromViewStack(PathElement element, Set<String> viewStack) {
-        if (viewStack == null) {
-            return getPropertyNames(element, PropertyView.BASE_VIEW);
+        if (matcher == null) {
+            matcher = new SquigglyMatcher(nodes, beanInfoIntrospector);
+            matchers.put(nodes, matcher);
         }
 
-        Set<String> propertyNames = Sets.newHashSet();
-
-        for (String viewName : viewStack) {
-            Set<String> names = getPropertyNames(element, viewName);
+        return matcher;
+    }
 
-            if (names.isEmpty() && SquigglyConfig.isFilterImplicitlyIncludeBaseFields()) {
-                names = getPropertyNames(element, PropertyView.BASE_VIEW);
+    @Override
+    public void serializeAsField(final Object pojo, final JsonGenerator jgen, final SerializerProvider provider,
+                                 final PropertyWriter writer) throws Exception {
+        if (!trackPathIncrementally) {
+            if (include(writer, jgen, provider)) {
+                contextProvider.serializeAsIncludedField(pojo, jgen, provider, writer);
+            } else if (!jgen.canOmitFields()) {
+                contextProvider.serializeAsExcludedField(pojo, jgen, provider, writer);
             }
 
-            propertyNames.addAll(names);
+            return;
         }
 
-        return propertyNames;
-    }
+        PathStack stack = getPathStack(pojo, jgen, true, provider);
 
-    private SquigglyNode findBestViewNode(PathElement element, List<SquigglyNode> nodes) {
-        if (Map.class.isAssignableFrom(element.getBeanClass())) {
-            for (SquigglyNode node : nodes) {
-                if (PropertyView.BASE_VIEW.equals(node.getName())) {
-                    return node;
-                }
-            }
-        } else {
-            for (SquigglyNode node : nodes) {
-                // handle view
-                Set<String> propertyNames = getPropertyNames(element, node.getName());
-
-                if (propertyNames.contains(element.getName())) {
-                    return node;
-                }
-            }
+        if (!stack.getSession().isFilteringEnabled()) {
+            contextProvider.serializeAsIncludedField(pojo, jgen, provider, writer);
+            return;
         }
 
-        return null;
-    }
-
-    private SquigglyNode findBestSimpleNode(PathElement element, List<SquigglyNode> nodes) {
-        SquigglyNode match = null;
-        int lastMatchStrength = -1;
+        // below ** every field is included, and so is everything under it, so the include-all state is pushed again as a
+        // marker without looking anything up.  nested objects then find they're below the root of the call.
+        SquigglyMatchState top = stack.peek();
+        SquigglyMatchState state = top.isIncludeAll() ? top : nextState(stack, pojo, provider, writer);
 
-        for (SquigglyNode node : nodes) {
-            int matchStrength = node.match(element.getName());
+        if (state != null) {
+            int size = stack.size();
+            stack.push(state, jgen.getOutputContext());
 
-            if (matchStrength < 0) {
-                continue;
+            try {
+                contextProvider.serializeAsIncludedField(pojo, jgen, provider, writer);
+            } finally {
+                stack.truncate(size);
             }
+        } else if (!jgen.canOmitFields()) {
+            contextProvider.serializeAsExcludedField(pojo, jgen, provider, writer);
+        }
+    }
 
-            if (lastMatchStrength < 0 || matchStrength >= lastMatchStrength) {
-                match = node;
-                lastMatchStrength = matchStrength;
-            }
+    // the path stack of the current call, resolving the session on first use and starting a new root when no enclosing
+    // object is being serialized.  started says whether the object's own output context is the current one, as it is
+    // for its fields, rather than the context it's about to be written in.
+    PathStack getPathStack(Object pojo, JsonGenerator gen, boolean started, SerializerProvider provider) {
+        PathStack stack = PathStack.getOrCreate(provider);
+        SquigglySession session = stack.getSession();
 
+        if (session == null || session.getFilter() != this) {
+            session = contextProvider.isFilteringEnabled() ? null : SquigglySession.disabled(this);
+            stack.setSession(session);
         }
 
-        return match;
-    }
-
-    private Set<String> addToViewStack(Set<String> viewStack, SquigglyNode viewNode) {
-        if (!SquigglyConfig.isFilterPropagateViewToNestedFilters()) {
-            return null;
+        if (session != null && !session.isFilteringEnabled()) {
+            return stack;
         }
 
-        if (viewStack == null) {
-            viewStack = Sets.newHashSet();
+        JsonStreamContext context = gen.getOutputContext();
+        JsonStreamContext parent = getNamedContext(started ? context.getParent() : context);
+
+        if (stack.isResumed() && !stack.isResumedAt(parent)) {
+            stack.truncate(stack.size() - 1);
         }
 
-        viewStack.add(viewNode.getName());
+        if (session == null || stack.isAtRoot()) {
+            Class rootClass = (parent == null) ? pojo.getClass() : getRootValue(parent).getClass();
 
-        return viewStack;
-    }
+            if (session == null || session.getRootClass() != rootClass) {
+                session = createSession(rootClass);
+                stack.setSession(session);
+            }
+
+            stack.reset(session.getMatcher(), session.getRootState());
+        }
 
-    private Set<String> getPropertyNames(PathElement element, String viewName) {
-        Class beanClass = element.getBeanClass();
+        JsonStreamContext top = stack.peekContext();
 
-        if (beanClass == null) {
-            return Collections.emptySet();
+        // the top entry was pushed by a field of this object or of its parent, unless objects the filter doesn't see,
+        // like types out of scope, were written in between
+        if (top != parent && (top != context || !started) && !stack.isResumed() && !stack.peek().isIncludeAll()) {
+            SquigglyMatchState state = resumeState(stack, parent);
+            stack.resume(state == null ? stack.getMatcher().getExcludeAllState() : state, parent);
         }
 
-        return beanInfoIntrospector.introspect(beanClass).getPropertyNamesForView(viewName);
+        return stack;
     }
 
-    @Override
-    public void serializeAsField(final Object pojo, final JsonGenerator jgen, final SerializerProvider provider,
-                                 final PropertyWriter writer) throws Exception {
-        if (include(writer, jgen)) {
-            contextProvider.serializeAsIncludedField(pojo, jgen, provider, writer);
-        } else if (!jgen.canOmitFields()) {
-            contextProvider.serializeAsExcludedField(pojo, jgen, provider, writer);
+    // the nearest context with a named value, which is the context of the enclosing object
+    private static JsonStreamContext getNamedContext(JsonStreamContext sc) {
+        while (sc != null && (sc.getCurrentName() == null || sc.getCurrentValue() == null)) {
+            sc = sc.getParent();
         }
-    }
 
-    public static SquigglyMetricsSource getMetricsSource() {
-        return METRICS_SOURCE;
+        return sc;
     }
 
-    /*
-            Represents the path structuore in the object graph
-         */
-    private static class Path {
+    // walk the path from the object whose field pushed the top entry, like getState does from the root
+    private static SquigglyMatchState resumeState(PathStack stack, JsonStreamContext sc) {
+        if (sc == null || sc == stack.peekContext()) {
+            return stack.peek();
+        }
 
-        private final String id;
-        private final LinkedList<PathElement> elements;
+        SquigglyMatchState state = resumeState(stack, sc.getParent());
 
-        public Path(LinkedList<PathElement> elements) {
-            StringBuilder idBuilder = new StringBuilder();
+        if (state == null || state.isIncludeAll() || sc.getCurrentName() == null || sc.getCurrentValue() == null) {
+            return state;
+        }
 
-            for (int i = 0; i < elements.size(); i++) {
-                PathElement element = elements.get(i);
+        return stack.getMatcher().next(state, sc.getCurrentName(), sc.getCurrentValue().getClass());
+    }
 
-                if (i > 0) {
-                    idBuilder.append('.');
-                }
+    // resolve the context of a root class once for the whole call
+    private SquigglySession createSession(Class rootClass) {
+        SquigglyContext context = contextProvider.getContext(rootClass);
+        SquigglyMatcher matcher = getMatcher(context);
+        SquigglyMatchState rootState = AnyDeepName.ID.equals(context.getFilter()) ? matcher.getIncludeAllState() : matcher.getRootState();
+        return SquigglySession.enabled(this, rootClass, context, matcher, rootState);
+    }
 
-                idBuilder.append(element.getName());
-            }
+    void serializeAsIncludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+        contextProvider.serializeAsIncludedField(pojo, jgen, provider, writer);
+    }
 
-            id = idBuilder.toString();
-            this.elements = elements;
-        }
+    // find the state of the field's value, using the include mask of the bean's class when possible
+    private SquigglyMatchState nextState(PathStack stack, Object pojo, SerializerProvider provider, PropertyWriter writer) throws JsonMappingException {
+        SquigglyMatcher matcher = stack.getMatcher();
+        SquigglyMatchState state = stack.peek();
+        Class beanClass = pojo.getClass();
 
-        public String getId() {
-            return id;
+        if (state.isIncludeAll()) {
+            return state;
         }
 
-        public List<PathElement> getElements() {
-            return elements;
+        if (state.isExcludeAll()) {
+            return null;
         }
 
-        public PathElement getFirst() {
-            return elements.getFirst();
+        if (pojo instanceof Map) {
+            return matcher.next(state, writer.getName(), beanClass);
         }
 
-        public PathElement getLast() {
-            return elements.getLast();
-        }
+        SquigglyIncludeMask includeMask = state.getIncludeMask(beanClass);
 
-        // we use the last element because that is where the json stream context started
-        public Class getBeanClass() {
-            return getLast().getBeanClass();
+        if (includeMask == null) {
+            includeMask = matcher.includeMask(state, beanClass, getPropertyNames(provider, beanClass));
         }
 
-        // maps aren't cachable
-        public boolean isCachable() {
-            Class beanClass = getBeanClass();
-            return beanClass != null && !Map.class.isAssignableFrom(beanClass);
-        }
+        int ordinal = includeMask.ordinal(writer.getName());
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            Path path = (Path) o;
-            Class beanClass = getBeanClass();
-            Class oBeanClass = path.getBeanClass();
-
-            if (!id.equals(path.id)) return false;
-            if (beanClass != null ? !beanClass.equals(oBeanClass) : oBeanClass != null) return false;
-
-            return true;
+        if (ordinal < 0) {
+            return matcher.next(state, writer.getName(), beanClass);
         }
 
-        @Override
-        public int hashCode() {
-            int result = id.hashCode();
-            Class beanClass = getBeanClass();
-            result = 31 * result + (beanClass != null ? beanClass.hashCode() : 0);
-            return result;
-        }
+        return includeMask.isIncluded(ordinal) ? includeMask.getState(ordinal) : null;
     }
 
-    // represent a specific point in the path.
-    private static class PathElement {
-        private final String name;
-        private final Class bean;
+    // the property names of a bean in the order jackson serializes them
+    private List<String> getPropertyNames(SerializerProvider provider, Class beanClass) throws JsonMappingException {
+        JsonSerializer<Object> serializer = provider.findValueSerializer(beanClass);
 
-        public PathElement(String name, Object bean) {
-            this.name = name;
-            this.bean = bean.getClass();
+        if (!(serializer instanceof BeanSerializerBase)) {
+            return Collections.emptyList();
         }
 
-        public String getName() {
-            return name;
-        }
+        List<String> names = new ArrayList<>();
+        Iterator<PropertyWriter> properties = ((BeanSerializerBase) serializer).properties();
 
-        public Class getBeanClass() {
-            return bean;
+        while (properties.hasNext()) {
+            names.add(properties.next().getName());
         }
+
+        return names;
+    }
+
+    public static SquigglyMetricsSource getMetricsSource() {
+        return METRICS_SOURCE;
     }
 }
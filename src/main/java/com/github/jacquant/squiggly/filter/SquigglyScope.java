@@ -0,0 +1,103 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.google.common.collect.ImmutableSet;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Selects the types that are filtered by the @{@link SquigglyPropertyFilter}.
+ * <p>A type is in scope when it belongs to one of the packages (or their sub packages), extends or implements one of
+ * the base types or is annotated with one of the annotations.  Types out of scope are serialized by Jackson's stock
+ * serializers.  Maps are only filtered when they are in scope too, e.g. with {@code SquigglyScope.types(Map.class)}.</p>
+ */
+@ThreadSafe
+public class SquigglyScope {
+
+    private final Set<String> packageNames;
+    private final Set<Class> types;
+    private final Set<Class<? extends Annotation>> annotations;
+
+    private SquigglyScope(Set<String> packageNames, Set<Class> types, Set<Class<? extends Annotation>> annotations) {
+        this.packageNames = ImmutableSet.copyOf(packageNames);
+        this.types = ImmutableSet.copyOf(types);
+        this.annotations = ImmutableSet.copyOf(annotations);
+    }
+
+    /**
+     * Create a scope of the types in the given packages and their sub packages.
+     *
+     * @param packageNames package names
+     * @return scope
+     */
+    public static SquigglyScope packages(String... packageNames) {
+        return new SquigglyScope(ImmutableSet.copyOf(packageNames), ImmutableSet.of(), ImmutableSet.of());
+    }
+
+    /**
+     * Create a scope of the types assignable to the given base types.
+     *
+     * @param types base types
+     * @return scope
+     */
+    public static SquigglyScope types(Class... types) {
+        return new SquigglyScope(ImmutableSet.of(), ImmutableSet.copyOf(types), ImmutableSet.of());
+    }
+
+    /**
+     * Create a scope of the types annotated with one the given annotations.
+     *
+     * @param annotations annotation types
+     * @return scope
+     */
+    @SafeVarargs
+    public static SquigglyScope annotations(Class<? extends Annotation>... annotations) {
+        return new SquigglyScope(ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.copyOf(Arrays.asList(annotations)));
+    }
+
+    /**
+     * Combine this scope with another one.
+     *
+     * @param other other scope
+     * @return scope including the types of both scopes
+     */
+    public SquigglyScope or(SquigglyScope other) {
+        return new SquigglyScope(
+                ImmutableSet.<String>builder().addAll(packageNames).addAll(other.packageNames).build(),
+                ImmutableSet.<Class>builder().addAll(types).addAll(other.types).build(),
+                ImmutableSet.<Class<? extends Annotation>>builder().addAll(annotations).addAll(other.annotations).build());
+    }
+
+    /**
+     * Determines whether or not a type is filtered.
+     *
+     * @param type the type
+     * @return true if filtered, false if not
+     */
+    @SuppressWarnings("unchecked")
+    public boolean includes(Class type) {
+        String packageName = type.getPackageName();
+
+        for (String scopePackageName : packageNames) {
+            if (packageName.equals(scopePackageName) || packageName.startsWith(scopePackageName + ".")) {
+                return true;
+            }
+        }
+
+        for (Class scopeType : types) {
+            if (scopeType.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+
+        for (Class<? extends Annotation> annotation : annotations) {
+            if (type.isAnnotationPresent(annotation)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.github.jacquant.squiggly.context.SquigglyContext;
+import com.github.jacquant.squiggly.match.SquigglyMatchState;
+import com.github.jacquant.squiggly.match.SquigglyMatcher;
+import net.jcip.annotations.Immutable;
+
+/*
+    What the context provider resolved for a single serialization call: whether filtering is enabled and, when it is,
+    the class of the root object, its parsed filter and compiled matcher.  It is created when the first root object of
+    the call is serialized, so the provider isn't asked again for every field.
+ */
+@Immutable
+class SquigglySession {
+
+    private final SquigglyPropertyFilter filter;
+    private final boolean filteringEnabled;
+    private final Class rootClass;
+    private final SquigglyContext context;
+    private final SquigglyMatcher matcher;
+    private final SquigglyMatchState rootState;
+
+    private SquigglySession(SquigglyPropertyFilter filter, boolean filteringEnabled, Class rootClass, SquigglyContext context,
+                            SquigglyMatcher matcher, SquigglyMatchState rootState) {
+        this.filter = filter;
+        this.filteringEnabled = filteringEnabled;
+        this.rootClass = rootClass;
+        this.context = context;
+        this.matcher = matcher;
+        this.rootState = rootState;
+    }
+
+    public static SquigglySession disabled(SquigglyPropertyFilter filter) {
+        return new SquigglySession(filter, false, null, null, null, null);
+    }
+
+    public static SquigglySession enabled(SquigglyPropertyFilter filter, Class rootClass, SquigglyContext context,
+                                          SquigglyMatcher matcher, SquigglyMatchState rootState) {
+        return new SquigglySession(filter, true, rootClass, context, matcher, rootState);
+    }
+
+    public SquigglyPropertyFilter getFilter() {
+        return filter;
+    }
+
+    public boolean isFilteringEnabled() {
+        return filteringEnabled;
+    }
+
+    public Class getRootClass() {
+        return rootClass;
+    }
+
+    public SquigglyContext getContext() {
+        return context;
+    }
+
+    public SquigglyMatcher getMatcher() {
+        return matcher;
+    }
+
+    public SquigglyMatchState getRootState() {
+        return rootState;
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.jacquant.squiggly.match;
+
+import com.github.jacquant.squiggly.metric.source.SquigglyMetricsSource;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, lock-free cache of filtering decisions keyed by (matcher state, class).
+ * <p>States are compared by identity, so keys never run out and the states of different matchers never collide.
+ * Classes are compared by an id given to each class once.</p>
+ * <p>Entries live in an open-addressing table.  A lookup probes a few slots and neither locks nor allocates, and a
+ * hit doesn't write anything but a reference bit.  When every slot a key can go to is taken, an entry is evicted
+ * clock-style: slots that have been read since the last sweep get a second chance.</p>
+ */
+@ThreadSafe
+public class SquigglyDecisionCache {
+
+    private static final int MAX_PROBES = 8;
+
+    private static final AtomicInteger CLASS_IDS = new AtomicInteger();
+    private static final ClassValue<Integer> CLASS_ID = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return CLASS_IDS.getAndIncrement();
+        }
+    };
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final byte[] referenced;
+    private final int mask;
+    private final AtomicInteger hand = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param size the number of entries to hold, rounded up to a power of two.  0 disables the cache.
+     */
+    public SquigglyDecisionCache(int size) {
+        int capacity = (size <= 0) ? 0 : Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        this.entries = new AtomicReferenceArray<>(capacity);
+        this.referenced = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Get the value of a state and a class.
+     *
+     * @param state state of a matcher
+     * @param type  class
+     * @return value or null
+     */
+    public Object get(SquigglyMatchState state, Class type) {
+        if (mask < 0) {
+            return null;
+        }
+
+        int classId = CLASS_ID.get(type);
+        int start = hash(state, classId);
+
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int index = (start + probe) & mask;
+            Entry entry = entries.get(index);
+
+            // entries are replaced but never removed, so an empty slot ends the probe sequence
+            if (entry == null) {
+                break;
+            }
+
+            if (entry.state == state && entry.classId == classId) {
+                if (referenced[index] == 0) {
+                    referenced[index] = 1;
+                }
+
+                hits.increment();
+                return entry.value;
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Associate a value with a state and a class, evicting another entry if needed.
+     *
+     * @param state state of a matcher
+     * @param type  class
+     * @param value value
+     */
+    public void put(SquigglyMatchState state, Class type, Object value) {
+        if (mask < 0) {
+            return;
+        }
+
+        int classId = CLASS_ID.get(type);
+        Entry newEntry = new Entry(state, classId, value);
+        int start = hash(state, classId);
+
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int index = (start + probe) & mask;
+            Entry entry = entries.get(index);
+
+            if (entry == null) {
+                if (entries.compareAndSet(index, null, newEntry)) {
+                    return;
+                }
+
+                entry = entries.get(index);
+            }
+
+            if (entry.state == state && entry.classId == classId) {
+                entries.set(index, newEntry);
+                return;
+            }
+        }
+
+        evict(start, newEntry);
+    }
+
+    // sweep the probe window from the clock hand, clearing reference bits until an unreferenced slot turns up
+    private void evict(int start, Entry newEntry) {
+        int offset = (hand.getAndIncrement() & Integer.MAX_VALUE) % MAX_PROBES;
+
+        for (int sweep = 0; sweep < MAX_PROBES * 2; sweep++) {
+            int index = (start + (offset + sweep) % MAX_PROBES) & mask;
+
+            if (referenced[index] != 0) {
+                referenced[index] = 0;
+                continue;
+            }
+
+            Entry entry = entries.get(index);
+
+            if (entries.compareAndSet(index, entry, newEntry)) {
+                evictions.increment();
+                return;
+            }
+        }
+
+        // lost every race, the value just isn't cached
+    }
+
+    private int hash(SquigglyMatchState state, int classId) {
+        long h = (((long) System.identityHashCode(state) << 32) | (classId & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Get a source of the hit, miss and eviction counts of the cache.
+     *
+     * @param prefix prefix of the metric names
+     * @return source
+     */
+    public SquigglyMetricsSource getMetricsSource(final String prefix) {
+        return new SquigglyMetricsSource() {
+            @Override
+            public void applyMetrics(Map<String, Object> map) {
+                long hitCount = hits.sum();
+                long requestCount = hitCount + misses.sum();
+                map.put(prefix + "capacity", entries.length());
+                map.put(prefix + "evictionCount", evictions.sum());
+                map.put(prefix + "hitCount", hitCount);
+                map.put(prefix + "hitRate", (requestCount == 0) ? 1.0 : (double) hitCount / requestCount);
+                map.put(prefix + "missCount", requestCount - hitCount);
+                map.put(prefix + "requestCount", requestCount);
+            }
+        };
+    }
+
+    private static class Entry {
+        private final SquigglyMatchState state;
+        private final int classId;
+        private final Object value;
+
+        Entry(SquigglyMatchState state, int classId, Object value) {
+            this.state = state;
+            this.classId = classId;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.jacquant.squiggly.match;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+/**
+ * The properties of a bean class that are included at a given {@link SquigglyMatchState}.  Properties are identified by
+ * their ordinal, which is their position in the property order the mask was built with.
+ */
+@ThreadSafe
+public class SquigglyIncludeMask {
+
+    private final WeakReference<Class> beanClass;
+    private final Map<String, Integer> ordinals;
+    private final long[] bits;
+    private final SquigglyMatchState[] states;
+
+    SquigglyIncludeMask(Class beanClass, Map<String, Integer> ordinals, long[] bits, SquigglyMatchState[] states) {
+        this.beanClass = new WeakReference<>(beanClass);
+        this.ordinals = ordinals;
+        this.bits = bits;
+        this.states = states;
+    }
+
+    /**
+     * Get the bean class of the mask.  The class is only held weakly, so the mask doesn't keep it from being unloaded.
+     *
+     * @return bean class, or null once it's been unloaded
+     */
+    public Class getBeanClass() {
+        return beanClass.get();
+    }
+
+    /**
+     * Get the number of properties covered by the mask.
+     *
+     * @return property count
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * Get the ordinal of a property.
+     *
+     * @param name property name
+     * @return ordinal or -1 if the property is not covered by the mask
+     */
+    public int ordinal(String name) {
+        Integer ordinal = ordinals.get(name);
+        return (ordinal == null) ? -1 : ordinal;
+    }
+
+    /**
+     * Says whether the property with the given ordinal is included.
+     *
+     * @param ordinal property ordinal
+     * @return true if included, false if not
+     */
+    public boolean isIncluded(int ordinal) {
+        return (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Get the state of the value of the property with the given ordinal.
+     *
+     * @param ordinal property ordinal
+     * @return state or null if the property is excluded
+     */
+    public SquigglyMatchState getState(int ordinal) {
+        return states[ordinal];
+    }
+}
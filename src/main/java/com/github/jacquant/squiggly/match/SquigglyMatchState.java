@@ -0,0 +1,174 @@
+package com.github.jacquant.squiggly.match;
+
+import com.github.jacquant.squiggly.parser.SquigglyNode;
+import com.github.jacquant.squiggly.parser.SquigglyNodeIndex;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A position in a compiled filter expression.  States are created and interned by a {@link SquigglyMatcher}, so two
+ * paths that end up at the same position in the filter share the same state instance.
+ */
+@ThreadSafe
+public class SquigglyMatchState {
+
+    // the include masks of the first few classes seen at this state are checked by identity before the map, like an
+    // inline cache.  a state that sees more classes than that is megamorphic and goes straight to the map.
+    private static final int INLINE_MASKS = 4;
+
+    enum Kind {
+        // match property names against the nodes of the state
+        NODES,
+        // match property names against the views in the view stack
+        VIEW,
+        // every property is included, all the way down
+        INCLUDE_ALL
+    }
+
+    private final int id;
+    private final Kind kind;
+    private final List<SquigglyNode> nodes;
+    private final SquigglyNodeIndex nodeIndex;
+    private final Set<String> viewStack;
+    private final ConcurrentMap<String, Object> transitions = new ConcurrentHashMap<>();
+    // weak keys, and masks only hold their class weakly, so a state doesn't keep the classes of serialized objects alive
+    private final Cache<Class, SquigglyIncludeMask> includeMasks = CacheBuilder.newBuilder().weakKeys().build();
+    private volatile SquigglyIncludeMask[] inlineMasks = new SquigglyIncludeMask[0];
+    private volatile boolean megamorphic;
+    private volatile Object otherKeyTransition;
+
+    SquigglyMatchState(int id, Kind kind, List<SquigglyNode> nodes, SquigglyNodeIndex nodeIndex, Set<String> viewStack) {
+        this.id = id;
+        this.kind = kind;
+        this.nodes = nodes;
+        this.nodeIndex = nodeIndex;
+        this.viewStack = viewStack;
+    }
+
+    /**
+     * Get the id of the state, which is unique within its matcher.
+     *
+     * @return id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Says whether every property below this state is included.
+     *
+     * @return true if everything is included, false if not
+     */
+    public boolean isIncludeAll() {
+        return kind == Kind.INCLUDE_ALL;
+    }
+
+    /**
+     * Says whether every property below this state is excluded, as in the assignee state of assignee{}.
+     *
+     * @return true if everything is excluded, false if not
+     */
+    public boolean isExcludeAll() {
+        return kind == Kind.NODES && nodes.isEmpty();
+    }
+
+    /**
+     * Get the include mask of a bean class, if it has been built.
+     *
+     * @param beanClass bean class
+     * @return mask or null
+     * @see SquigglyMatcher#includeMask(SquigglyMatchState, Class, java.util.List)
+     */
+    public SquigglyIncludeMask getIncludeMask(Class beanClass) {
+        if (megamorphic) {
+            return includeMasks.getIfPresent(beanClass);
+        }
+
+        SquigglyIncludeMask[] masks = inlineMasks;
+
+        for (SquigglyIncludeMask mask : masks) {
+            if (mask.getBeanClass() == beanClass) {
+                return mask;
+            }
+        }
+
+        SquigglyIncludeMask includeMask = includeMasks.getIfPresent(beanClass);
+
+        if (includeMask != null) {
+            addInlineMask(masks, includeMask);
+        }
+
+        return includeMask;
+    }
+
+    /**
+     * Says whether more classes have been seen at this state than its inline cache holds.
+     *
+     * @return true if megamorphic, false if not
+     */
+    public boolean isMegamorphic() {
+        return megamorphic;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    List<SquigglyNode> getNodes() {
+        return nodes;
+    }
+
+    SquigglyNodeIndex getNodeIndex() {
+        return nodeIndex;
+    }
+
+    Set<String> getViewStack() {
+        return viewStack;
+    }
+
+    Object getTransition(String name) {
+        return transitions.get(name);
+    }
+
+    void putTransition(String name, Object transition) {
+        transitions.putIfAbsent(name, transition);
+    }
+
+    // the number of names remembered so far
+    int getTransitionCount() {
+        return transitions.size();
+    }
+
+    Object getOtherKeyTransition() {
+        return otherKeyTransition;
+    }
+
+    void setOtherKeyTransition(Object transition) {
+        otherKeyTransition = transition;
+    }
+
+    SquigglyIncludeMask putIncludeMask(SquigglyIncludeMask includeMask) {
+        SquigglyIncludeMask existing = includeMasks.asMap().putIfAbsent(includeMask.getBeanClass(), includeMask);
+        return (existing == null) ? includeMask : existing;
+    }
+
+    // copy on write, a lost race only costs a later map lookup
+    private void addInlineMask(SquigglyIncludeMask[] masks, SquigglyIncludeMask includeMask) {
+        if (masks.length >= INLINE_MASKS) {
+            megamorphic = true;
+            inlineMasks = new SquigglyIncludeMask[0];
+            return;
+        }
+
+        SquigglyIncludeMask[] newMasks = Arrays.copyOf(masks, masks.length + 1);
+        newMasks[masks.length] = includeMask;
+        inlineMasks = newMasks;
+    }
+}
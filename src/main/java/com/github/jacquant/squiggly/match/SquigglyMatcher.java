@@ -0,0 +1,461 @@
+package com.github.jacquant.squiggly.match;
+
+import com.github.jacquant.squiggly.bean.BeanInfo;
+import com.github.jacquant.squiggly.bean.BeanInfoIntrospector;
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import com.github.jacquant.squiggly.name.ExactName;
+import com.github.jacquant.squiggly.parser.SquigglyNode;
+import com.github.jacquant.squiggly.parser.SquigglyNodeIndex;
+import com.github.jacquant.squiggly.view.PropertyView;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A filter expression compiled into a state machine.  The states are positions in the filter and the transitions are
+ * property names, so deciding whether a property is included takes a single transition from the state of its parent.
+ * <p>The matcher does not depend on Jackson and can be used to filter any tree of named values:</p>
+ * <pre>
+ *    SquigglyMatcher matcher = new SquigglyMatcher(new SquigglyParser().parse("id,assignee[firstName]"));
+ *    SquigglyMatchState assignee = matcher.next(matcher.getRootState(), "assignee");
+ *
+ *    matcher.matches(assignee, "firstName");     // true
+ *    matcher.matches(assignee, "lastName");      // false
+ * </pre>
+ * <p>When a bean class is supplied, property views and @JsonUnwrapped properties of that class are taken into account.
+ * Without a bean class, values are matched the same way as the keys of a map.</p>
+ * <p>States are interned by the nodes they match against, so the number of states is bounded by the size of the filter
+ * rather than the depth of the values.  Recursive structures fold onto a few states: everything below ** shares the
+ * include all state, and a level past the end of the filter matches its base view in the same state as the level
+ * above it.</p>
+ */
+@ThreadSafe
+public class SquigglyMatcher {
+
+    private static final List<SquigglyNode> BASE_VIEW_NODES = Collections.singletonList(new SquigglyNode(new ExactName(PropertyView.BASE_VIEW), Collections.<SquigglyNode>emptyList(), false, true, false));
+    private static final SquigglyNodeIndex BASE_VIEW_INDEX = SquigglyNodeIndex.of(BASE_VIEW_NODES);
+
+    // transition markers for names that don't lead to a state
+    private static final Object EXCLUDED = new Object();
+    private static final Object NO_SIMPLE_MATCH = new Object();
+
+    private static final AtomicInteger MATCHER_IDS = new AtomicInteger();
+
+    private final int id = MATCHER_IDS.getAndIncrement();
+    private final BeanInfoIntrospector beanInfoIntrospector;
+    private final ConcurrentMap<StateKey, SquigglyMatchState> states = new ConcurrentHashMap<>();
+    private final AtomicInteger stateIds = new AtomicInteger();
+    private final SquigglyMatchState rootState;
+    private final SquigglyMatchState includeAllState;
+
+    /**
+     * Compile the parsed nodes of a filter expression.
+     *
+     * @param nodes parsed nodes
+     */
+    public SquigglyMatcher(List<SquigglyNode> nodes) {
+        this(nodes, new BeanInfoIntrospector());
+    }
+
+    /**
+     * Compile the parsed nodes of a filter expression, using a specific introspector for resolving views.
+     *
+     * @param nodes                parsed nodes
+     * @param beanInfoIntrospector introspector
+     */
+    public SquigglyMatcher(List<SquigglyNode> nodes, BeanInfoIntrospector beanInfoIntrospector) {
+        this.beanInfoIntrospector = beanInfoIntrospector;
+        this.rootState = state(SquigglyMatchState.Kind.NODES, nodes, SquigglyNodeIndex.of(nodes), null);
+        this.includeAllState = state(SquigglyMatchState.Kind.INCLUDE_ALL, Collections.<SquigglyNode>emptyList(), SquigglyNodeIndex.of(Collections.<SquigglyNode>emptyList()), null);
+    }
+
+    /**
+     * Get the id of the matcher, which is unique within the JVM.
+     *
+     * @return id
+     */
+    public int getId() {
+        return id;
+    }
+
+    // the number of states created so far
+    int getStateCount() {
+        return states.size();
+    }
+
+    /**
+     * Get the state for the top-level properties.
+     *
+     * @return root state
+     */
+    public SquigglyMatchState getRootState() {
+        return rootState;
+    }
+
+    /**
+     * Get the state that includes every property.
+     *
+     * @return include all state
+     */
+    public SquigglyMatchState getIncludeAllState() {
+        return includeAllState;
+    }
+
+    /**
+     * Get the state that excludes every property, like the state of an excluded property.
+     *
+     * @return exclude all state
+     */
+    public SquigglyMatchState getExcludeAllState() {
+        return state(SquigglyMatchState.Kind.NODES, Collections.<SquigglyNode>emptyList(), SquigglyNodeIndex.of(Collections.<SquigglyNode>emptyList()), null);
+    }
+
+    /**
+     * Says whether a property is included at the given state.
+     *
+     * @param state the state of the parent
+     * @param name  the property name
+     * @return true if included, false if not
+     */
+    public boolean matches(SquigglyMatchState state, String name) {
+        return next(state, name, null) != null;
+    }
+
+    /**
+     * Says whether a property of the given bean class is included at the given state.
+     *
+     * @param state     the state of the parent
+     * @param name      the property name
+     * @param beanClass the class of the bean that owns the property, or null
+     * @return true if included, false if not
+     */
+    public boolean matches(SquigglyMatchState state, String name, Class beanClass) {
+        return next(state, name, beanClass) != null;
+    }
+
+    /**
+     * Transition to the state of a property's value.
+     *
+     * @param state the state of the parent
+     * @param name  the property name
+     * @return the state of the property's value, or null if the property is excluded
+     */
+    public SquigglyMatchState next(SquigglyMatchState state, String name) {
+        return next(state, name, null);
+    }
+
+    /**
+     * Transition to the state of a property's value.
+     *
+     * @param state     the state of the parent
+     * @param name      the property name
+     * @param beanClass the class of the bean that owns the property, or null
+     * @return the state of the property's value, or null if the property is excluded
+     */
+    public SquigglyMatchState next(SquigglyMatchState state, String name, Class beanClass) {
+        switch (state.getKind()) {
+            case INCLUDE_ALL:
+                return state;
+            case VIEW:
+                return isInView(state, name, beanClass) ? state : null;
+            default:
+                break;
+        }
+
+        if (beanClass == null || Map.class.isAssignableFrom(beanClass)) {
+            return nextKey(state, name, beanClass);
+        }
+
+        Object transition = state.getTransition(name);
+
+        if (transition == null) {
+            transition = simpleTransition(state, name, beanIndex(state, beanClass));
+
+            if (isKnownName(state, name, beanClass)) {
+                state.putTransition(name, transition);
+            }
+        }
+
+        if (transition == EXCLUDED) {
+            return null;
+        }
+
+        if (transition != NO_SIMPLE_MATCH) {
+            return (SquigglyMatchState) transition;
+        }
+
+        return viewTransition(state, name, beanClass);
+    }
+
+    // only the names of the filter and the properties of the bean class are remembered, which bounds the transitions of
+    // a state.  names coming from the data, like the keys of a @JsonAnyGetter, are matched every time.
+    private boolean isKnownName(SquigglyMatchState state, String name, Class beanClass) {
+        return state.getNodeIndex().containsExact(name)
+                || beanInfoIntrospector.introspect(beanClass).getPropertyNames().contains(name);
+    }
+
+    /**
+     * Get the include mask of a bean class at the given state.  The mask is built once per state and bean class, so
+     * every instance of the class is filtered with a lookup instead of a transition per property.
+     *
+     * @param state         the state of the bean
+     * @param beanClass     the bean class
+     * @param propertyNames the names of the bean's properties, in serialization order
+     * @return mask
+     */
+    public SquigglyIncludeMask includeMask(SquigglyMatchState state, Class beanClass, List<String> propertyNames) {
+        SquigglyIncludeMask includeMask = state.getIncludeMask(beanClass);
+
+        if (includeMask != null) {
+            return includeMask;
+        }
+
+        int size = propertyNames.size();
+        Map<String, Integer> ordinals = Maps.newHashMapWithExpectedSize(size);
+        long[] bits = new long[(size + 63) >>> 6];
+        SquigglyMatchState[] states = new SquigglyMatchState[size];
+
+        for (int i = 0; i < size; i++) {
+            String name = propertyNames.get(i);
+            ordinals.put(name, i);
+            states[i] = next(state, name, beanClass);
+
+            if (states[i] != null) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+
+        return state.putIncludeMask(new SquigglyIncludeMask(beanClass, ordinals, bits, states));
+    }
+
+    // map keys are unbounded, so only the keys named in the filter are remembered one by one.  when the state has no
+    // wildcard or regex names, every other key takes the same transition, which is remembered once.
+    private SquigglyMatchState nextKey(SquigglyMatchState state, String name, Class mapClass) {
+        SquigglyNodeIndex nodeIndex = state.getNodeIndex();
+        Object transition;
+
+        if (nodeIndex.containsExact(name)) {
+            transition = state.getTransition(name);
+
+            if (transition == null) {
+                transition = simpleTransition(state, name, state.getNodeIndex());
+                state.putTransition(name, transition);
+            }
+        } else if (nodeIndex.hasPatterns()) {
+            transition = otherKeyTransition(state, name, mapClass);
+        } else {
+            transition = state.getOtherKeyTransition();
+
+            if (transition == null) {
+                transition = otherKeyTransition(state, name, mapClass);
+                state.setOtherKeyTransition(transition);
+            }
+        }
+
+        if (transition == EXCLUDED) {
+            return null;
+        }
+
+        if (transition != NO_SIMPLE_MATCH) {
+            return (SquigglyMatchState) transition;
+        }
+
+        return isJsonUnwrapped(mapClass, name) ? state : null;
+    }
+
+    // the transition of a key that isn't an exact name of the filter.  only the base view applies to maps, so the view
+    // transition doesn't depend on the key either.
+    private Object otherKeyTransition(SquigglyMatchState state, String name, Class mapClass) {
+        Object transition = simpleTransition(state, name, state.getNodeIndex());
+
+        if (transition != NO_SIMPLE_MATCH) {
+            return transition;
+        }
+
+        SquigglyNode match = findBestViewNode(name, mapClass, state.getNodes());
+
+        if (match == null) {
+            return NO_SIMPLE_MATCH;
+        }
+
+        if (match.isNegated()) {
+            return EXCLUDED;
+        }
+
+        return childState(match, !match.isSquiggly(), addToViewStack(state.getViewStack(), match));
+    }
+
+    // the node index of the state expanded into the property names of the bean class.  the expansion belongs to the
+    // parsed nodes, so it's shared by every state and matcher built from them.
+    private SquigglyNodeIndex beanIndex(SquigglyMatchState state, Class beanClass) {
+        SquigglyNodeIndex nodeIndex = state.getNodeIndex();
+
+        if (!nodeIndex.hasPatterns()) {
+            return nodeIndex;
+        }
+
+        return nodeIndex.expand(beanClass, beanInfoIntrospector.introspect(beanClass).getPropertyNames());
+    }
+
+    // the transition that only depends on the name of the property
+    private Object simpleTransition(SquigglyMatchState state, String name, SquigglyNodeIndex nodeIndex) {
+        if (state.getNodes().isEmpty()) {
+            return EXCLUDED;
+        }
+
+        SquigglyNode match = nodeIndex.findBest(name);
+
+        if (match == null) {
+            return NO_SIMPLE_MATCH;
+        }
+
+        if (match.isAnyDeep()) {
+            return includeAllState;
+        }
+
+        if (match.isNegated()) {
+            return EXCLUDED;
+        }
+
+        return childState(match, match.isAnyShallow() && !match.isSquiggly(), state.getViewStack());
+    }
+
+    // the transition that depends on the views or unwrapped properties of the bean class
+    private SquigglyMatchState viewTransition(SquigglyMatchState state, String name, Class beanClass) {
+        SquigglyNode match = findBestViewNode(name, beanClass, state.getNodes());
+
+        if (match == null) {
+            return isJsonUnwrapped(beanClass, name) ? state : null;
+        }
+
+        if (match.isNegated()) {
+            return null;
+        }
+
+        return childState(match, !match.isSquiggly(), addToViewStack(state.getViewStack(), match));
+    }
+
+    private SquigglyMatchState childState(SquigglyNode match, boolean view, Set<String> viewStack) {
+        if (view) {
+            return state(SquigglyMatchState.Kind.VIEW, Collections.<SquigglyNode>emptyList(), SquigglyNodeIndex.of(Collections.<SquigglyNode>emptyList()), viewStack);
+        }
+
+        List<SquigglyNode> children = match.getChildren();
+
+        if (children.isEmpty() && !match.isEmptyNested() && SquigglyConfig.isFilterImplicitlyIncludeBaseFields()) {
+            return state(SquigglyMatchState.Kind.NODES, BASE_VIEW_NODES, BASE_VIEW_INDEX, viewStack);
+        }
+
+        return state(SquigglyMatchState.Kind.NODES, children, match.getChildIndex(), viewStack);
+    }
+
+    private SquigglyMatchState state(SquigglyMatchState.Kind kind, List<SquigglyNode> nodes, SquigglyNodeIndex nodeIndex, Set<String> viewStack) {
+        StateKey key = new StateKey(kind, nodes, viewStack);
+        SquigglyMatchState state = states.get(key);
+
+        if (state == null) {
+            SquigglyMatchState newState = new SquigglyMatchState(stateIds.getAndIncrement(), kind, nodes, nodeIndex, viewStack);
+            state = states.putIfAbsent(key, newState);
+
+            if (state == null) {
+                state = newState;
+            }
+        }
+
+        return state;
+    }
+
+    private boolean isInView(SquigglyMatchState state, String name, Class beanClass) {
+        if (beanClass == null || Map.class.isAssignableFrom(beanClass)) {
+            return true;
+        }
+
+        BeanInfo beanInfo = beanInfoIntrospector.introspect(beanClass);
+        Set<String> viewStack = state.getViewStack();
+
+        if (viewStack == null) {
+            return beanInfo.isInView(PropertyView.BASE_VIEW, name);
+        }
+
+        return beanInfo.isInViews(viewStack, name);
+    }
+
+    private boolean isJsonUnwrapped(Class beanClass, String name) {
+        return beanClass != null && beanInfoIntrospector.introspect(beanClass).isUnwrapped(name);
+    }
+
+    private SquigglyNode findBestViewNode(String name, Class beanClass, List<SquigglyNode> nodes) {
+        if (beanClass == null || Map.class.isAssignableFrom(beanClass)) {
+            for (SquigglyNode node : nodes) {
+                if (PropertyView.BASE_VIEW.equals(node.getName())) {
+                    return node;
+                }
+            }
+        } else {
+            BeanInfo beanInfo = beanInfoIntrospector.introspect(beanClass);
+
+            for (SquigglyNode node : nodes) {
+                // handle view
+                if (beanInfo.isInView(node.getName(), name)) {
+                    return node;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private Set<String> addToViewStack(Set<String> viewStack, SquigglyNode viewNode) {
+        if (!SquigglyConfig.isFilterPropagateViewToNestedFilters()) {
+            return null;
+        }
+
+        if (viewStack == null) {
+            return ImmutableSet.of(viewNode.getName());
+        }
+
+        return ImmutableSet.<String>builder().addAll(viewStack).add(viewNode.getName()).build();
+    }
+
+    // states are equal when they match against the same node list instance and view stack
+    private static class StateKey {
+        private final SquigglyMatchState.Kind kind;
+        private final List<SquigglyNode> nodes;
+        private final Set<String> viewStack;
+
+        StateKey(SquigglyMatchState.Kind kind, List<SquigglyNode> nodes, Set<String> viewStack) {
+            this.kind = kind;
+            this.nodes = nodes;
+            this.viewStack = viewStack;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            StateKey stateKey = (StateKey) o;
+
+            if (kind != stateKey.kind) return false;
+            if (nodes != stateKey.nodes) return false;
+            return Objects.equals(viewStack, stateKey.viewStack);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind.hashCode();
+            result = 31 * result + System.identityHashCode(nodes);
+            result = 31 * result + (viewStack != null ? viewStack.hashCode() : 0);
+            return result;
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.github.jacquant.squiggly.metric;
 import com.github.jacquant.squiggly.bean.BeanInfoIntrospector;
 import com.github.jacquant.squiggly.metric.source.CompositeSquigglyMetricsSource;
 import com.github.jacquant.squiggly.metric.source.SquigglyMetricsSource;
+import com.github.jacquant.squiggly.parser.SquigglyFilterComposer;
 import com.github.jacquant.squiggly.parser.SquigglyParser;
+import com.github.jacquant.squiggly.filter.SquigglyBeanSerializer;
 import com.github.jacquant.squiggly.filter.SquigglyPropertyFilter;
 import com.google.common.collect.Maps;
 import net.jcip.annotations.ThreadSafe;
@@ -21,7 +23,9 @@ public class SquigglyMetrics {
     static {
         METRICS_SOURCE = new CompositeSquigglyMetricsSource(
                 SquigglyParser.getMetricsSource(),
+                SquigglyFilterComposer.getMetricsSource(),
                 SquigglyPropertyFilter.getMetricsSource(),
+                SquigglyBeanSerializer.getMetricsSource(),
                 BeanInfoIntrospector.getMetricsSource()
         );
     }
@@ -0,0 +1,234 @@
+package com.github.jacquant.squiggly.name;
+
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.StringUtils;
+
+/*
+    Matches names against a glob of literal characters, * (any run of characters) and ? (an optional character)
+    without regular expressions.  Prefix, suffix and contains globs use startsWith, endsWith and indexOf, other globs
+    without ? find their literal segments in order, and globs with ? run a small NFA whose states fit in a long.
+
+    The regex the wildcard used to compile to doesn't let * and ? match line terminators.  Literals can't contain them
+    either, so a name with a line terminator never matches.
+ */
+@ThreadSafe
+abstract class GlobMatcher {
+
+    private static final int MAX_NFA_LENGTH = 63;
+
+    // compile the glob, or return null if it has characters with a special meaning in the regex it used to compile to
+    static GlobMatcher compile(String glob) {
+        if (glob.length() > MAX_NFA_LENGTH) {
+            return null;
+        }
+
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+
+            if (c != '*' && c != '?' && !isLiteral(c)) {
+                return null;
+            }
+        }
+
+        String literal = glob.replace("*", "");
+
+        if (glob.indexOf('?') < 0 && literal.length() > 0) {
+            if (glob.equals(literal + "*")) {
+                return new Prefix(literal);
+            }
+
+            if (glob.equals("*" + literal)) {
+                return new Suffix(literal);
+            }
+
+            if (glob.equals("*" + literal + "*")) {
+                return new Contains(literal);
+            }
+        }
+
+        return (glob.indexOf('?') < 0) ? new Segmented(glob) : new Nfa(glob);
+    }
+
+    abstract boolean matches(String name);
+
+    private static boolean isLiteral(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+    }
+
+    private static boolean hasLineTerminator(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class Prefix extends GlobMatcher {
+        private final String prefix;
+
+        Prefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean matches(String name) {
+            return name.startsWith(prefix) && !hasLineTerminator(name);
+        }
+    }
+
+    private static class Suffix extends GlobMatcher {
+        private final String suffix;
+
+        Suffix(String suffix) {
+            this.suffix = suffix;
+        }
+
+        @Override
+        boolean matches(String name) {
+            return name.endsWith(suffix) && !hasLineTerminator(name);
+        }
+    }
+
+    private static class Contains extends GlobMatcher {
+        private final String infix;
+
+        Contains(String infix) {
+            this.infix = infix;
+        }
+
+        @Override
+        boolean matches(String name) {
+            return name.contains(infix) && !hasLineTerminator(name);
+        }
+    }
+
+    // the first segment has to start the name and the last one has to end it.  the ones in between are found from left
+    // to right, and taking the leftmost occurrence of each never loses a match.
+    private static class Segmented extends GlobMatcher {
+        private final String[] segments;
+        private final boolean anchoredStart;
+        private final boolean anchoredEnd;
+
+        Segmented(String glob) {
+            this.segments = StringUtils.split(glob, '*');
+            this.anchoredStart = !glob.startsWith("*");
+            this.anchoredEnd = !glob.endsWith("*");
+        }
+
+        @Override
+        boolean matches(String name) {
+            int start = 0;
+            int end = name.length();
+            int first = 0;
+            int last = segments.length;
+            boolean endMatched = !anchoredEnd;
+
+            if (anchoredStart && last > first) {
+                if (!name.startsWith(segments[first])) {
+                    return false;
+                }
+
+                start = segments[first++].length();
+            }
+
+            if (anchoredEnd && last > first) {
+                if (!name.endsWith(segments[last - 1]) || end - segments[last - 1].length() < start) {
+                    return false;
+                }
+
+                end -= segments[--last].length();
+                endMatched = true;
+            }
+
+            for (int i = first; i < last; i++) {
+                int index = name.indexOf(segments[i], start);
+
+                if (index < 0 || index + segments[i].length() > end) {
+                    return false;
+                }
+
+                start = index + segments[i].length();
+            }
+
+            return (endMatched || start == end) && !hasLineTerminator(name);
+        }
+    }
+
+    // bit i of the state set means the first i characters of the glob have been matched
+    private static class Nfa extends GlobMatcher {
+        private final char[] glob;
+        private final long stars;
+        private final long optional;
+        private final long accept;
+
+        Nfa(String glob) {
+            long stars = 0;
+            long optional = 0;
+
+            for (int i = 0; i < glob.length(); i++) {
+                if (glob.charAt(i) == '*') {
+                    stars |= 1L << i;
+                } else if (glob.charAt(i) == '?') {
+                    optional |= 1L << i;
+                }
+            }
+
+            this.glob = glob.toCharArray();
+            this.stars = stars;
+            this.optional = optional;
+            this.accept = 1L << this.glob.length;
+        }
+
+        @Override
+        boolean matches(String name) {
+            if (hasLineTerminator(name)) {
+                return false;
+            }
+
+            long states = closure(1L);
+
+            // like the regex, ? stands for a code point rather than a char
+            for (int i = 0; i < name.length() && states != 0; ) {
+                int c = name.codePointAt(i);
+                states = closure(step(states, c));
+                i += Character.charCount(c);
+            }
+
+            return (states & accept) != 0;
+        }
+
+        private long step(long states, int c) {
+            // a * stays put, a ? moves on whatever the character
+            long next = (states & stars) | ((states & optional) << 1);
+            long literals = states & ~(stars | optional) & (accept - 1);
+
+            while (literals != 0) {
+                int i = Long.numberOfTrailingZeros(literals);
+                literals &= literals - 1;
+
+                if (glob[i] == c) {
+                    next |= 1L << (i + 1);
+                }
+            }
+
+            return next;
+        }
+
+        // * and ? can match nothing, so they can be skipped
+        private long closure(long states) {
+            long skippable = stars | optional;
+            long previous;
+
+            do {
+                previous = states;
+                states |= (states & skippable) << 1;
+            } while (states != previous);
+
+            return states;
+        }
+    }
+}
@@ -0,0 +1,873 @@
+package com.github.jacquant.squiggly.name;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.PatternSyntaxException;
+
+/*
+    Matches names against a regex in time linear in the length of the name, whatever the regex.
+
+    The regex is compiled to a Thompson NFA, a program of instructions that either consume a code point or branch
+    without consuming anything.  Matching runs every thread of the program in lock step, one code point at a time, so
+    no code point is ever looked at twice.  The sets of threads it goes through are the states of a DFA, built lazily:
+    a state and its transitions on ASCII characters are remembered, so names made of characters seen before are
+    matched with one array lookup per character.  Only a bounded number of states are remembered, past that the sets
+    are computed as they're needed, which is still linear.
+
+    The regexes supported are the ones that can be matched without backtracking, with the syntax and meaning of
+    java.util.regex:
+     - literals, escaped metacharacters, \t \n \r \f \e \a \xhh and \\uhhhh
+     - . and the classes \d \D \w \W \s \S
+     - character classes with ranges, negation and the classes above, but no unions or intersections
+     - groups and non capturing groups, and alternation
+     - the greedy and reluctant quantifiers * + ? {n} {n,} {n,m}
+     - ^ and $
+    Anything else, like back references, lookarounds, possessive quantifiers and inline flags, is a syntax error.  The
+    only flag is i, which like Pattern.CASE_INSENSITIVE folds the case of ASCII letters.
+ */
+@ThreadSafe
+class LinearRegexMatcher extends RegexMatcher {
+
+    // bounds the size of the program, since a repetition copies what it repeats
+    private static final int MAX_INSTRUCTIONS = 10000;
+    private static final int MAX_REPETITION = 1000;
+
+    // bounds the memory of the lazy DFA, each state holds a transition for each ASCII character
+    private static final int MAX_DFA_STATES = 256;
+
+    private static final int ASCII = 128;
+
+    // instructions
+    private static final int CHAR = 0;      // consume the code point x
+    private static final int ANY = 1;       // consume any code point but a line terminator
+    private static final int CLASS = 2;     // consume a code point in the class x
+    private static final int SPLIT = 3;     // go on at both x and y
+    private static final int JUMP = 4;      // go on at x
+    private static final int BEGIN = 5;     // go on at the start of the name
+    private static final int END = 6;       // go on at the end of the name, or before a line terminator ending it
+    private static final int MATCH = 7;
+
+    private final int[] ops;
+    private final int[] xs;
+    private final int[] ys;
+    private final CharClass[] classes;
+    private final boolean caseInsensitive;
+    private final boolean hasEnd;
+    private final ConcurrentMap<StateKey, DfaState> dfaStates = new ConcurrentHashMap<>();
+    private final DfaState start;
+
+    LinearRegexMatcher(String pattern, boolean caseInsensitive) {
+        Compiler compiler = new Compiler(pattern, caseInsensitive);
+        compiler.compile();
+
+        this.ops = compiler.ops.toArray();
+        this.xs = compiler.xs.toArray();
+        this.ys = compiler.ys.toArray();
+        this.classes = compiler.classes.toArray(new CharClass[0]);
+        this.caseInsensitive = caseInsensitive;
+        this.hasEnd = compiler.hasEnd;
+        this.start = state(new Threads(ops.length).start(this, false));
+    }
+
+    @Override
+    boolean matches(String name) {
+        Threads threads = null;
+        DfaState state = start;
+
+        if (hasEnd && isEndOk(name, 0)) {
+            threads = new Threads(ops.length);
+            state = state(threads.start(this, true));
+        }
+
+        for (int i = 0; i < name.length() && !state.dead; ) {
+            int c = name.codePointAt(i);
+            i += Character.charCount(c);
+
+            boolean endOk = hasEnd && isEndOk(name, i);
+            DfaState next = (endOk || c >= ASCII) ? null : state.next[c];
+
+            if (next == null) {
+                if (threads == null) {
+                    threads = new Threads(ops.length);
+                }
+
+                next = state(threads.step(this, state.pcs, c, endOk));
+
+                // the transition only holds where END can't go on, so it isn't remembered for the last characters
+                if (!endOk && c < ASCII) {
+                    state.next[c] = next;
+                }
+            }
+
+            state = next;
+        }
+
+        return state.accepting;
+    }
+
+    private DfaState state(int[] pcs) {
+        StateKey key = new StateKey(pcs);
+        DfaState state = dfaStates.get(key);
+
+        if (state != null) {
+            return state;
+        }
+
+        state = new DfaState(pcs, pcs.length > 0 && ops[pcs[pcs.length - 1]] == MATCH);
+
+        if (dfaStates.size() < MAX_DFA_STATES) {
+            DfaState existing = dfaStates.putIfAbsent(key, state);
+
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        return state;
+    }
+
+    private boolean consumes(int pc, int c) {
+        switch (ops[pc]) {
+            case CHAR:
+                return (caseInsensitive ? foldCase(c) : c) == xs[pc];
+            case ANY:
+                return !isLineTerminator(c);
+            case CLASS:
+                return classes[xs[pc]].matches(c);
+            default:
+                return false;
+        }
+    }
+
+    // the $ of java.util.regex without MULTILINE, which also goes on before a line terminator ending the name
+    private static boolean isEndOk(String name, int i) {
+        int remaining = name.length() - i;
+
+        if (remaining == 0) {
+            return true;
+        }
+
+        if (remaining == 2) {
+            return name.charAt(i) == '\r' && name.charAt(i + 1) == '\n';
+        }
+
+        if (remaining == 1) {
+            char c = name.charAt(i);
+
+            if (c == '\n') {
+                return i == 0 || name.charAt(i - 1) != '\r';
+            }
+
+            return c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+
+        return false;
+    }
+
+    private static boolean isLineTerminator(int c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static int foldCase(int c) {
+        return (c >= 'A' && c <= 'Z') ? c + ('a' - 'A') : c;
+    }
+
+    // the set of threads at a position of the name, with its transitions
+    private static class DfaState {
+        private final int[] pcs;
+        private final boolean accepting;
+        private final boolean dead;
+        private final DfaState[] next = new DfaState[ASCII];
+
+        DfaState(int[] pcs, boolean accepting) {
+            this.pcs = pcs;
+            this.accepting = accepting;
+            this.dead = pcs.length == 0;
+        }
+    }
+
+    private static class StateKey {
+        private final int[] pcs;
+        private final int hash;
+
+        StateKey(int[] pcs) {
+            this.pcs = pcs;
+            this.hash = Arrays.hashCode(pcs);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateKey && Arrays.equals(pcs, ((StateKey) o).pcs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // scratch space for computing the next set of threads, used by a single match
+    private static class Threads {
+        private final int[] marks;
+        private final int[] stack;
+        private final int[] pcs;
+        private int mark;
+        private int size;
+
+        Threads(int length) {
+            this.marks = new int[length];
+            this.stack = new int[2 * length + 1];
+            this.pcs = new int[length];
+        }
+
+        int[] start(LinearRegexMatcher matcher, boolean endOk) {
+            begin();
+            add(matcher, 0, true, endOk);
+            return end();
+        }
+
+        int[] step(LinearRegexMatcher matcher, int[] from, int c, boolean endOk) {
+            begin();
+
+            for (int pc : from) {
+                if (matcher.consumes(pc, c)) {
+                    add(matcher, pc + 1, false, endOk);
+                }
+            }
+
+            return end();
+        }
+
+        private void begin() {
+            mark++;
+            size = 0;
+        }
+
+        private int[] end() {
+            int[] result = Arrays.copyOf(pcs, size);
+            Arrays.sort(result);
+            return result;
+        }
+
+        // add a thread and every thread it leads to without consuming anything, keeping the ones that consume
+        private void add(LinearRegexMatcher matcher, int pc, boolean atStart, boolean endOk) {
+            int top = 0;
+            stack[top++] = pc;
+
+            while (top > 0) {
+                pc = stack[--top];
+
+                if (marks[pc] == mark) {
+                    continue;
+                }
+
+                marks[pc] = mark;
+
+                switch (matcher.ops[pc]) {
+                    case SPLIT:
+                        stack[top++] = matcher.ys[pc];
+                        stack[top++] = matcher.xs[pc];
+                        break;
+                    case JUMP:
+                        stack[top++] = matcher.xs[pc];
+                        break;
+                    case BEGIN:
+                        if (atStart) {
+                            stack[top++] = pc + 1;
+                        }
+                        break;
+                    case END:
+                        if (endOk) {
+                            stack[top++] = pc + 1;
+                        }
+                        break;
+                    default:
+                        pcs[size++] = pc;
+                        break;
+                }
+            }
+        }
+    }
+
+    private static class CharClass {
+        private final int[] ranges;
+        private final boolean negated;
+        private final boolean caseInsensitive;
+
+        CharClass(int[] ranges, boolean negated, boolean caseInsensitive) {
+            this.ranges = ranges;
+            this.negated = negated;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        boolean matches(int c) {
+            boolean in = contains(c);
+
+            if (!in && caseInsensitive && c < ASCII && Character.isLetter(c)) {
+                in = contains(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+            }
+
+            return in != negated;
+        }
+
+        private boolean contains(int c) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (c >= ranges[i] && c <= ranges[i + 1]) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        int add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size] = value;
+            return size++;
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // parses the regex into a tree of nodes, then emits the program of the tree
+    private static class Compiler {
+        private static final int[] DIGITS = {'0', '9'};
+        private static final int[] WORDS = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+        private static final int[] SPACES = {'\t', '\r', ' ', ' '};  // \t \n \x0B \f \r and space
+
+        private final String pattern;
+        private final boolean caseInsensitive;
+        private final IntList ops = new IntList();
+        private final IntList xs = new IntList();
+        private final IntList ys = new IntList();
+        private final List<CharClass> classes = new ArrayList<>();
+        private boolean hasEnd;
+        private int index;
+
+        Compiler(String pattern, boolean caseInsensitive) {
+            this.pattern = pattern;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        void compile() {
+            Node node = alternation();
+
+            if (index < pattern.length()) {
+                throw error("Unmatched closing ')'");
+            }
+
+            node.emit(this);
+            emit(MATCH, 0, 0);
+        }
+
+        private Node alternation() {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(sequence());
+
+            while (peek() == '|') {
+                index++;
+                alternatives.add(sequence());
+            }
+
+            return (alternatives.size() == 1) ? alternatives.get(0) : new Alternation(alternatives);
+        }
+
+        private Node sequence() {
+            List<Node> nodes = new ArrayList<>();
+
+            while (index < pattern.length() && peek() != '|' && peek() != ')') {
+                nodes.add(quantifier(atom()));
+            }
+
+            return new Sequence(nodes);
+        }
+
+        private Node atom() {
+            int c = pattern.codePointAt(index);
+
+            switch (c) {
+                case '(':
+                    index++;
+
+                    if (pattern.startsWith("?:", index)) {
+                        index += 2;
+                    } else if (peek() == '?') {
+                        throw error("Unsupported group");
+                    }
+
+                    Node group = alternation();
+
+                    if (peek() != ')') {
+                        throw error("Unclosed group");
+                    }
+
+                    index++;
+                    return group;
+                case '[':
+                    return characterClass();
+                case '.':
+                    index++;
+                    return new Instruction(ANY, 0);
+                case '^':
+                    index++;
+                    return new Assertion(BEGIN);
+                case '$':
+                    index++;
+                    hasEnd = true;
+                    return new Assertion(END);
+                case '\\':
+                    return escape();
+                case '*':
+                case '+':
+                case '?':
+                    throw error("Dangling meta character '" + (char) c + "'");
+                case '{':
+                    throw error("Illegal repetition");
+                default:
+                    index += Character.charCount(c);
+                    return literal(c);
+            }
+        }
+
+        private Node quantifier(Node node) {
+            int min;
+            int max;
+
+            switch (peek()) {
+                case '*':
+                    min = 0;
+                    max = -1;
+                    index++;
+                    break;
+                case '+':
+                    min = 1;
+                    max = -1;
+                    index++;
+                    break;
+                case '?':
+                    min = 0;
+                    max = 1;
+                    index++;
+                    break;
+                case '{':
+                    index++;
+                    min = number();
+                    max = min;
+
+                    if (peek() == ',') {
+                        index++;
+                        max = (peek() == '}') ? -1 : number();
+                    }
+
+                    if (peek() != '}') {
+                        throw error("Unclosed counted closure");
+                    }
+
+                    index++;
+
+                    if (max >= 0 && max < min) {
+                        throw error("Illegal repetition range");
+                    }
+
+                    break;
+                default:
+                    return node;
+            }
+
+            if (node instanceof Assertion) {
+                throw error("Unsupported quantified assertion");
+            }
+
+            // a reluctant quantifier matches the same names, only the captured groups would differ
+            if (peek() == '?') {
+                index++;
+            } else if (peek() == '+') {
+                throw error("Unsupported possessive quantifier");
+            }
+
+            int c = peek();
+
+            if (c == '*' || c == '+' || c == '?' || c == '{') {
+                throw error("Dangling meta character '" + (char) c + "'");
+            }
+
+            return new Repetition(node, min, max);
+        }
+
+        private int number() {
+            int start = index;
+            int value = 0;
+
+            while (peek() >= '0' && peek() <= '9') {
+                value = value * 10 + (pattern.charAt(index++) - '0');
+
+                if (value > MAX_REPETITION) {
+                    throw error("Repetition of more than " + MAX_REPETITION);
+                }
+            }
+
+            if (index == start) {
+                throw error("Illegal repetition");
+            }
+
+            return value;
+        }
+
+        private Node escape() {
+            int[] ranges = classEscape();
+
+            if (ranges != null) {
+                boolean negated = Character.isUpperCase(pattern.charAt(index - 1));
+                return characterClass(ranges, negated);
+            }
+
+            return literal(literalEscape());
+        }
+
+        // \d \D \w \W \s \S, after which the index is past the escape, or null if it's another escape
+        private int[] classEscape() {
+            if (index + 1 >= pattern.length()) {
+                throw error("Unexpected end of pattern");
+            }
+
+            int[] ranges;
+
+            switch (Character.toLowerCase(pattern.charAt(index + 1))) {
+                case 'd':
+                    ranges = DIGITS;
+                    break;
+                case 'w':
+                    ranges = WORDS;
+                    break;
+                case 's':
+                    ranges = SPACES;
+                    break;
+                default:
+                    return null;
+            }
+
+            index += 2;
+            return ranges;
+        }
+
+        private int literalEscape() {
+            index++;
+
+            if (index >= pattern.length()) {
+                throw error("Unexpected end of pattern");
+            }
+
+            int c = pattern.codePointAt(index);
+            index += Character.charCount(c);
+
+            switch (c) {
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 'f':
+                    return '\f';
+                case 'e':
+                    return '\u001B';
+                case 'a':
+                    return '\u0007';
+                case 'x':
+                    return hex(2);
+                case 'u':
+                    return hex(4);
+                default:
+                    if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                        throw error("Unsupported escape sequence");
+                    }
+
+                    return c;
+            }
+        }
+
+        private int hex(int digits) {
+            if (index + digits > pattern.length()) {
+                throw error("Illegal hexadecimal escape sequence");
+            }
+
+            int value = 0;
+
+            for (int i = 0; i < digits; i++) {
+                int digit = Character.digit(pattern.charAt(index++), 16);
+
+                if (digit < 0) {
+                    throw error("Illegal hexadecimal escape sequence");
+                }
+
+                value = value * 16 + digit;
+            }
+
+            return value;
+        }
+
+        private Node characterClass() {
+            index++;
+
+            boolean negated = peek() == '^';
+
+            if (negated) {
+                index++;
+            }
+
+            if (peek() == ']') {
+                throw error("Unsupported empty character class");
+            }
+
+            IntList ranges = new IntList();
+
+            while (true) {
+                if (index >= pattern.length()) {
+                    throw error("Unclosed character class");
+                }
+
+                int c = pattern.codePointAt(index);
+
+                if (c == ']') {
+                    index++;
+                    break;
+                }
+
+                if (c == '[' || pattern.startsWith("&&", index)) {
+                    throw error("Unsupported character class union or intersection");
+                }
+
+                if (c == '\\') {
+                    int[] escapedRanges = classEscape();
+
+                    if (escapedRanges != null) {
+                        boolean negatedEscape = Character.isUpperCase(pattern.charAt(index - 1));
+                        addRanges(ranges, negatedEscape ? complement(escapedRanges) : escapedRanges);
+
+                        if (peek() == '-' && index + 1 < pattern.length() && pattern.charAt(index + 1) != ']') {
+                            throw error("Illegal character range");
+                        }
+
+                        continue;
+                    }
+                }
+
+                int low = classLiteral();
+                int high = low;
+
+                if (peek() == '-' && index + 1 < pattern.length() && pattern.charAt(index + 1) != ']') {
+                    index++;
+
+                    if (peek() == '[' || (peek() == '\\' && classEscape() != null)) {
+                        throw error("Illegal character range");
+                    }
+
+                    high = classLiteral();
+
+                    if (high < low) {
+                        throw error("Illegal character range");
+                    }
+                }
+
+                ranges.add(low);
+                ranges.add(high);
+            }
+
+            return characterClass(ranges.toArray(), negated);
+        }
+
+        private int classLiteral() {
+            int c = pattern.codePointAt(index);
+
+            if (c == '\\') {
+                return literalEscape();
+            }
+
+            index += Character.charCount(c);
+            return c;
+        }
+
+        private Node characterClass(int[] ranges, boolean negated) {
+            classes.add(new CharClass(ranges, negated, caseInsensitive));
+            return new Instruction(CLASS, classes.size() - 1);
+        }
+
+        private Node literal(int c) {
+            return new Instruction(CHAR, caseInsensitive ? foldCase(c) : c);
+        }
+
+        private static void addRanges(IntList list, int[] ranges) {
+            for (int range : ranges) {
+                list.add(range);
+            }
+        }
+
+        // the complement of sorted ranges
+        private static int[] complement(int[] ranges) {
+            IntList complement = new IntList();
+            int next = 0;
+
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    complement.add(next);
+                    complement.add(ranges[i] - 1);
+                }
+
+                next = ranges[i + 1] + 1;
+            }
+
+            complement.add(next);
+            complement.add(Character.MAX_CODE_POINT);
+            return complement.toArray();
+        }
+
+        private int peek() {
+            return (index < pattern.length()) ? pattern.charAt(index) : -1;
+        }
+
+        private int emit(int op, int x, int y) {
+            if (ops.size() >= MAX_INSTRUCTIONS) {
+                throw error("Pattern is too large");
+            }
+
+            xs.add(x);
+            ys.add(y);
+            return ops.add(op);
+        }
+
+        private int pc() {
+            return ops.size();
+        }
+
+        private PatternSyntaxException error(String description) {
+            return new PatternSyntaxException(description, pattern, index);
+        }
+    }
+
+    private interface Node {
+        void emit(Compiler compiler);
+    }
+
+    private static class Instruction implements Node {
+        private final int op;
+        private final int x;
+
+        Instruction(int op, int x) {
+            this.op = op;
+            this.x = x;
+        }
+
+        @Override
+        public void emit(Compiler compiler) {
+            compiler.emit(op, x, 0);
+        }
+    }
+
+    private static class Assertion extends Instruction {
+        Assertion(int op) {
+            super(op, 0);
+        }
+    }
+
+    private static class Sequence implements Node {
+        private final List<Node> nodes;
+
+        Sequence(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public void emit(Compiler compiler) {
+            for (Node node : nodes) {
+                node.emit(compiler);
+            }
+        }
+    }
+
+    private static class Alternation implements Node {
+        private final List<Node> alternatives;
+
+        Alternation(List<Node> alternatives) {
+            this.alternatives = alternatives;
+        }
+
+        @Override
+        public void emit(Compiler compiler) {
+            List<Integer> jumps = new ArrayList<>();
+
+            for (int i = 0; i < alternatives.size() - 1; i++) {
+                int split = compiler.emit(SPLIT, compiler.pc() + 1, 0);
+                alternatives.get(i).emit(compiler);
+                jumps.add(compiler.emit(JUMP, 0, 0));
+                compiler.ys.set(split, compiler.pc());
+            }
+
+            alternatives.get(alternatives.size() - 1).emit(compiler);
+
+            for (int jump : jumps) {
+                compiler.xs.set(jump, compiler.pc());
+            }
+        }
+    }
+
+    private static class Repetition implements Node {
+        private final Node node;
+        private final int min;
+        private final int max;
+
+        Repetition(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public void emit(Compiler compiler) {
+            for (int i = 0; i < min; i++) {
+                node.emit(compiler);
+            }
+
+            if (max < 0) {
+                int split = compiler.emit(SPLIT, compiler.pc() + 1, 0);
+                node.emit(compiler);
+                compiler.emit(JUMP, split, 0);
+                compiler.ys.set(split, compiler.pc());
+                return;
+            }
+
+            List<Integer> splits = new ArrayList<>();
+
+            for (int i = min; i < max; i++) {
+                splits.add(compiler.emit(SPLIT, compiler.pc() + 1, 0));
+                node.emit(compiler);
+            }
+
+            for (int split : splits) {
+                compiler.ys.set(split, compiler.pc());
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.jacquant.squiggly.name;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.regex.Pattern;
+
+/*
+    Matches names against the pattern of a regex name, either with java.util.regex or with a LinearRegexMatcher.
+
+    java.util.regex backtracks, so a pattern like (a|a)*b can take time exponential in the length of the name.  The
+    linear matcher can't take more than a step per character and instruction of the pattern, but only supports the
+    patterns that don't need backtracking.
+ */
+@ThreadSafe
+abstract class RegexMatcher {
+
+    static RegexMatcher compile(String pattern, boolean caseInsensitive, RegexName.Engine engine) {
+        if (engine == RegexName.Engine.LINEAR) {
+            return new LinearRegexMatcher(pattern, caseInsensitive);
+        }
+
+        return new JavaRegexMatcher(Pattern.compile(pattern, caseInsensitive ? Pattern.CASE_INSENSITIVE : 0));
+    }
+
+    abstract boolean matches(String name);
+
+    private static class JavaRegexMatcher extends RegexMatcher {
+        private final Pattern pattern;
+
+        JavaRegexMatcher(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean matches(String name) {
+            return pattern.matcher(name).matches();
+        }
+    }
+}
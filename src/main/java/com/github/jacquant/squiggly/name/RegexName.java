@@ -1,28 +1,52 @@
 package com.github.jacquant.squiggly.name;
 
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+
+import java.util.Locale;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 public class RegexName implements SquigglyName {
 
+    /**
+     * The regex engines a regex name can be matched with.
+     */
+    public enum Engine {
+        /**
+         * {@link java.util.regex.Pattern}, which supports every regex but backtracks.
+         */
+        JAVA,
+
+        /**
+         * A matcher that takes time linear in the length of the name, for regexes without back references,
+         * lookarounds, possessive quantifiers or inline flags.
+         */
+        LINEAR
+    }
+
+    private static final Engine DEFAULT_ENGINE = Engine.valueOf(SquigglyConfig.getParserRegexEngine().toUpperCase(Locale.ROOT));
+
     private final String name;
     private final String rawName;
-    private final Pattern pattern;
+    private final RegexMatcher matcher;
 
     public RegexName(String name, Set<String> flags) {
+        this(name, flags, DEFAULT_ENGINE);
+    }
+
+    public RegexName(String name, Set<String> flags, Engine engine) {
         this.name = name;
         this.rawName = name;
-        this.pattern = buildPattern(name, flags);
+        this.matcher = RegexMatcher.compile(name, isCaseInsensitive(name, flags), engine);
     }
 
-    private Pattern buildPattern(String name, Set<String> flags) {
-        int flagMask = 0;
+    private static boolean isCaseInsensitive(String name, Set<String> flags) {
+        boolean caseInsensitive = false;
 
         if (flags != null && !flags.isEmpty()) {
             for (String flag : flags) {
                 switch (flag) {
                     case "i":
-                        flagMask |= Pattern.CASE_INSENSITIVE;
+                        caseInsensitive = true;
                         break;
                     default:
                         throw new IllegalArgumentException("Unrecognized flag " + flag + " for pattern " + name);
@@ -30,7 +54,7 @@ public class RegexName implements SquigglyName {
             }
         }
 
-        return Pattern.compile(name, flagMask);
+        return caseInsensitive;
     }
 
     @Override
@@ -43,10 +67,19 @@ public class RegexName implements SquigglyName {
         return rawName;
     }
 
+    /**
+     * Get the strength of a match of this name.
+     *
+     * @return match strength
+     */
+    public int getMatchStrength() {
+        return rawName.length() + 2;
+    }
+
     @Override
     public int match(String name) {
-        if (pattern.matcher(name).matches()) {
-            return rawName.length() + 2;
+        if (matcher.matches(name)) {
+            return getMatchStrength();
         }
 
         return -1;
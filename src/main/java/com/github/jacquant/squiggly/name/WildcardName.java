@@ -8,12 +8,14 @@ public class WildcardName implements SquigglyName {
 
     private final String name;
     private final String rawName;
+    private final GlobMatcher glob;
     private final Pattern pattern;
 
     public WildcardName(String name) {
         this.name = name;
         this.rawName = StringUtils.remove(this.name, '*');
-        this.pattern = buildPattern();
+        this.glob = GlobMatcher.compile(name);
+        this.pattern = (glob == null) ? buildPattern() : null;
     }
 
     private Pattern buildPattern() {
@@ -23,6 +25,11 @@ public class WildcardName implements SquigglyName {
         return Pattern.compile("^" + StringUtils.replaceEach(name, search, replace) + "$");
     }
 
+    // whether the name is matched by a glob matcher rather than a regex
+    boolean isGlob() {
+        return glob != null;
+    }
+
     @Override
     public String getName() {
         return name;
@@ -33,10 +40,19 @@ public class WildcardName implements SquigglyName {
         return name;
     }
 
+    /**
+     * Get the strength of a match of this name, which doesn't count the * characters.
+     *
+     * @return match strength
+     */
+    public int getMatchStrength() {
+        return rawName.length() + 2;
+    }
+
     @Override
     public int match(String name) {
-        if (pattern.matcher(name).matches()) {
-            return rawName.length() + 2;
+        if ((glob != null) ? glob.matches(name) : pattern.matcher(name).matches()) {
+            return getMatchStrength();
         }
 
         return -1;
@@ -0,0 +1,241 @@
+package com.github.jacquant.squiggly.name;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.List;
+
+/**
+ * Matches a name against up to 64 wildcard names in a single pass.
+ * <p>The globs of the wildcard names are laid end to end in one NFA.  Its states are bits, so each character of the
+ * name advances every glob at once with a few shifts and masks.  The result is a mask of the wildcard names that
+ * matched, which gives the same answers as calling {@link WildcardName#match(String)} on each of them.</p>
+ */
+@ThreadSafe
+public class WildcardNameAutomaton {
+
+    /**
+     * The maximum number of wildcard names in an automaton.
+     */
+    public static final int MAX_NAMES = 64;
+
+    private static final int ASCII = 128;
+
+    private final int words;
+    private final long[][] literals = new long[ASCII][];
+    private final long[] wordLiterals = new long[ASCII];
+    private final long[] stars;
+    private final long[] optional;
+    private final long[] skippable;
+    private final long[] start;
+    private final int[] accept;
+
+    /**
+     * Constructor.
+     *
+     * @param names wildcard names accepted by {@link #accepts(SquigglyName)}
+     */
+    public WildcardNameAutomaton(List<WildcardName> names) {
+        if (names.size() > MAX_NAMES) {
+            throw new IllegalArgumentException("An automaton can match at most " + MAX_NAMES + " wildcard names");
+        }
+
+        int positions = 0;
+
+        for (WildcardName name : names) {
+            if (!accepts(name)) {
+                throw new IllegalArgumentException("Wildcard " + name.getName() + " is matched by a regex");
+            }
+
+            positions += name.getName().length() + 1;
+        }
+
+        this.words = Math.max((positions + 63) >>> 6, 1);
+        this.stars = new long[words];
+        this.optional = new long[words];
+        this.skippable = new long[words];
+        this.start = new long[words];
+        this.accept = new int[names.size()];
+
+        int base = 0;
+
+        for (int k = 0; k < names.size(); k++) {
+            String glob = names.get(k).getName();
+            set(start, base);
+
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+
+                if (c == '*') {
+                    set(stars, base + i);
+                } else if (c == '?') {
+                    set(optional, base + i);
+                } else {
+                    if (literals[c] == null) {
+                        literals[c] = new long[words];
+                    }
+
+                    set(literals[c], base + i);
+                }
+            }
+
+            base += glob.length();
+            accept[k] = base++;
+        }
+
+        for (int w = 0; w < words; w++) {
+            skippable[w] = stars[w] | optional[w];
+        }
+
+        for (int c = 0; c < ASCII; c++) {
+            wordLiterals[c] = (literals[c] == null) ? 0 : literals[c][0];
+        }
+    }
+
+    /**
+     * Says whether a name can be part of an automaton.
+     *
+     * @param name name
+     * @return true if it's a wildcard name matched by a glob, false if not
+     */
+    public static boolean accepts(SquigglyName name) {
+        return name instanceof WildcardName && ((WildcardName) name).isGlob();
+    }
+
+    /**
+     * Match a name against all the wildcard names.
+     *
+     * @param name property name
+     * @return mask with bit k set if the kth wildcard name matches
+     */
+    public long match(String name) {
+        if (words == 1) {
+            return matchWord(name);
+        }
+
+        long[] states = start.clone();
+        closure(states);
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            long[] literal = (c < ASCII) ? literals[c] : null;
+
+            if (isLineTerminator(c)) {
+                return 0;
+            }
+
+            if (isSurrogatePair(name, i)) {
+                i++;
+            }
+
+            long carry = 0;
+            boolean alive = false;
+
+            // a * stays put, a ? moves on whatever the character, a literal moves on when it's the character
+            for (int w = 0; w < words; w++) {
+                long moving = states[w] & optional[w];
+
+                if (literal != null) {
+                    moving |= states[w] & literal[w];
+                }
+
+                long next = (states[w] & stars[w]) | (moving << 1) | carry;
+                carry = moving >>> 63;
+                states[w] = next;
+                alive |= next != 0;
+            }
+
+            if (!alive) {
+                return 0;
+            }
+
+            closure(states);
+        }
+
+        long matches = 0;
+
+        for (int k = 0; k < accept.length; k++) {
+            if (isSet(states, accept[k])) {
+                matches |= 1L << k;
+            }
+        }
+
+        return matches;
+    }
+
+    // the same as match, with the states in a single long
+    private long matchWord(String name) {
+        long stars = this.stars[0];
+        long optional = this.optional[0];
+        long skippable = this.skippable[0];
+        long states = closure(start[0], skippable);
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            long moving = states & optional;
+
+            if (c < ASCII) {
+                moving |= states & wordLiterals[c];
+            }
+
+            if (isLineTerminator(c)) {
+                return 0;
+            }
+
+            if (isSurrogatePair(name, i)) {
+                i++;
+            }
+
+            states = closure((states & stars) | (moving << 1), skippable);
+
+            if (states == 0) {
+                return 0;
+            }
+        }
+
+        long matches = 0;
+
+        for (int k = 0; k < accept.length; k++) {
+            matches |= ((states >>> accept[k]) & 1L) << k;
+        }
+
+        return matches;
+    }
+
+    // * and ? can match nothing, so a state on one spreads through the run of * and ? it's in and the position after
+    // it.  adding the states to the runs carries a bit from the first state through the end of its run, and the bits
+    // the carry flips are the new states.  runs never reach an accept position, so they never cross into another glob.
+    private static long closure(long states, long skippable) {
+        return states | ((skippable + (states & skippable)) ^ skippable);
+    }
+
+    // the same as the single long closure, with the carry going from word to word
+    private void closure(long[] states) {
+        long carry = 0;
+
+        for (int w = 0; w < words; w++) {
+            long sum = skippable[w] + (states[w] & skippable[w]);
+            long carried = sum + carry;
+            long carryOut = (Long.compareUnsigned(sum, skippable[w]) < 0 || Long.compareUnsigned(carried, sum) < 0) ? 1 : 0;
+            states[w] |= carried ^ skippable[w];
+            carry = carryOut;
+        }
+    }
+
+    // the regex wildcard names used to compile to doesn't let * and ? match a line terminator
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    // like the regex, ? stands for a code point rather than a char
+    private static boolean isSurrogatePair(String name, int i) {
+        return Character.isHighSurrogate(name.charAt(i)) && i + 1 < name.length() && Character.isLowSurrogate(name.charAt(i + 1));
+    }
+
+    private static void set(long[] bits, int position) {
+        bits[position >>> 6] |= 1L << position;
+    }
+
+    private static boolean isSet(long[] bits, int position) {
+        return (bits[position >>> 6] & (1L << position)) != 0;
+    }
+}
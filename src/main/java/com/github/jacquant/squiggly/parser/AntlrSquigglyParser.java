@@ -0,0 +1,148 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.name.SquigglyName;
+import com.github.jacquant.squiggly.parser.antlr4.SquigglyExpressionBaseVisitor;
+import com.github.jacquant.squiggly.parser.antlr4.SquigglyExpressionLexer;
+import com.github.jacquant.squiggly.parser.antlr4.SquigglyExpressionParser;
+import com.github.jacquant.squiggly.util.antlr4.ThrowingErrorListener;
+import net.jcip.annotations.ThreadSafe;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Parses filter expressions with the parser ANTLR generates from SquigglyExpression.g4.
+ * <p>{@link SquigglyParser} uses the hand written {@link SquigglyDescentParser} instead.  This parser is the reference
+ * it's tested against.  Nothing is cached, and there's no {@link SquigglyFilterBudget}.</p>
+ */
+@ThreadSafe
+public class AntlrSquigglyParser {
+
+    /**
+     * Parse a filter expression.
+     *
+     * @param filter the filter expression, trimmed and not empty
+     * @return compiled nodes
+     * @throws SquigglyParseException if the expression is invalid
+     */
+    public List<SquigglyNode> parse(String filter) {
+        SquigglyExpressionLexer lexer = ThrowingErrorListener.overwrite(new SquigglyExpressionLexer(new ANTLRInputStream(filter)));
+        SquigglyExpressionParser parser = ThrowingErrorListener.overwrite(new SquigglyExpressionParser(new CommonTokenStream(lexer)));
+
+        Visitor visitor = new Visitor(new SquigglyNodeBuilder(SquigglyFilterBudget.UNLIMITED));
+        return visitor.visit(parser.parse());
+    }
+
+    private static class Visitor extends SquigglyExpressionBaseVisitor<List<SquigglyNode>> {
+        private final SquigglyNodeBuilder builder;
+
+        Visitor(SquigglyNodeBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public List<SquigglyNode> visitParse(SquigglyExpressionParser.ParseContext ctx) {
+            handleExpressionList(ctx.expression_list(), builder.getRoot());
+            return builder.build();
+        }
+
+        private void handleExpressionList(SquigglyExpressionParser.Expression_listContext ctx, SquigglyNodeBuilder.MutableNode parent) {
+            List<SquigglyExpressionParser.ExpressionContext> expressions = ctx.expression();
+
+            for (SquigglyExpressionParser.ExpressionContext expressionContext : expressions) {
+                handleExpression(expressionContext, parent);
+            }
+        }
+
+        private void handleExpression(SquigglyExpressionParser.ExpressionContext ctx, SquigglyNodeBuilder.MutableNode parent) {
+
+            if (ctx.negated_expression() != null) {
+                handleNegatedExpression(ctx.negated_expression(), parent);
+            }
+
+            List<SquigglyName> names;
+
+            if (ctx.field() != null) {
+                names = Collections.singletonList(createName(ctx.field()));
+            } else if (ctx.dot_path() != null) {
+                List<SquigglyName> path = createNames(ctx.dot_path().field());
+                parent = builder.addDotPath(parent, path);
+                names = Collections.singletonList(path.get(path.size() - 1));
+            } else if (ctx.field_list() != null) {
+                names = createNames(ctx.field_list().field());
+            } else if (ctx.deep() != null) {
+                names = Collections.singletonList(builder.anyDeepName());
+            } else {
+                names = Collections.emptyList();
+            }
+
+
+            for (SquigglyName name : names) {
+                SquigglyNodeBuilder.MutableNode node = builder.addField(parent, name);
+
+                if (ctx.empty_nested_expression() != null) {
+                    builder.setEmptyNested(node);
+                } else if (ctx.nested_expression() != null) {
+                    builder.setNested(node);
+                    handleExpressionList(ctx.nested_expression().expression_list(), node);
+                }
+            }
+        }
+
+        private List<SquigglyName> createNames(List<SquigglyExpressionParser.FieldContext> fields) {
+            List<SquigglyName> names = new ArrayList<>(fields.size());
+
+            for (SquigglyExpressionParser.FieldContext fieldContext : fields) {
+                names.add(createName(fieldContext));
+            }
+
+            return names;
+        }
+
+        private SquigglyName createName(SquigglyExpressionParser.FieldContext ctx) {
+            SquigglyName name;
+
+            if (ctx.exact_field() != null) {
+                name = builder.exactName(ctx.getText());
+            } else if (ctx.wildcard_field() != null) {
+                name = builder.wildcardName(ctx.getText());
+            } else if (ctx.regex_field() != null) {
+                String regexPattern = ctx.regex_field().regex_pattern().getText();
+                Set<String> regexFlags = new HashSet<>(ctx.regex_field().regex_flag().size());
+
+                for (SquigglyExpressionParser.Regex_flagContext regex_flagContext : ctx.regex_field().regex_flag()) {
+                    regexFlags.add(regex_flagContext.getText());
+                }
+
+                try {
+                    name = builder.regexName(regexPattern, regexFlags);
+                } catch (PatternSyntaxException e) {
+                    Token patternStart = ctx.regex_field().regex_pattern().getStart();
+                    throw SquigglyParseException.invalidPattern(patternStart.getLine(), patternStart.getCharPositionInLine(), e);
+                }
+            } else if (ctx.wildcard_shallow_field() != null) {
+                name = builder.anyShallowName();
+            } else {
+                throw new IllegalArgumentException("Unhandled field: " + ctx.getText());
+            }
+
+            return name;
+        }
+
+
+        private void handleNegatedExpression(SquigglyExpressionParser.Negated_expressionContext ctx, SquigglyNodeBuilder.MutableNode parent) {
+            if (ctx.field() != null) {
+                builder.addNegatedField(parent, createName(ctx.field()));
+            } else if (ctx.dot_path() != null) {
+                builder.addNegatedDotPath(parent, createNames(ctx.dot_path().field()));
+            }
+        }
+    }
+}
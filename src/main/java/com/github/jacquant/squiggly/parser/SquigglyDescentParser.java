@@ -0,0 +1,517 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.name.SquigglyName;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A hand written recursive descent parser for filter expressions.  It accepts the same language as
+ * SquigglyExpression.g4 and builds the same nodes as {@link AntlrSquigglyParser}, in a single pass over the expression
+ * and without a token stream or parse tree in between.
+ * <p>Tokens are scanned the way the ANTLR lexer scans them, taking the longest match and preferring the literal tokens
+ * of the grammar on a tie.  So a lone i is the regex flag rather than an identifier, and ** is always the deep
+ * wildcard.  Nothing is cached.</p>
+ * <p>The cost of the expression is checked against a {@link SquigglyFilterBudget} as it's parsed, which also bounds
+ * the work of parsing it again for each field of a field list.</p>
+ * <p>Unlike the grammar, an expression can also be a reference to a {@link SquigglyNamedFilters named filter},
+ * written @name, which is parsed as if the expression of the named filter was written in its place.</p>
+ */
+@ThreadSafe
+public class SquigglyDescentParser {
+
+    // token types
+    private static final int EOF = 0;
+    private static final int COMMA = 1;
+    private static final int LPAREN = 2;
+    private static final int PIPE = 3;
+    private static final int RPAREN = 4;
+    private static final int DASH = 5;
+    private static final int DOT = 6;
+    private static final int TILDE = 7;
+    private static final int SLASH = 8;
+    private static final int FLAG = 9;
+    private static final int QUESTION = 10;
+    private static final int LBRACE = 11;
+    private static final int RBRACE = 12;
+    private static final int LSQUIGGLY = 13;
+    private static final int RSQUIGGLY = 14;
+    private static final int IDENTIFIER = 15;
+    private static final int STAR = 16;
+    private static final int DEEP = 17;
+    private static final int REGEX_CHAR = 18;
+    private static final int REFERENCE = 19;
+
+    // named filters can refer to each other, this stops a cycle of references
+    private static final int MAX_REFERENCE_DEPTH = 16;
+
+    private final SquigglyFilterBudget budget;
+    private final SquigglyNamedFilters namedFilters;
+
+    /**
+     * Constructor for a parser without a budget or named filters.
+     */
+    public SquigglyDescentParser() {
+        this(SquigglyFilterBudget.UNLIMITED);
+    }
+
+    /**
+     * Constructor for a parser without named filters.
+     *
+     * @param budget limits the cost of the filters the parser accepts
+     */
+    public SquigglyDescentParser(SquigglyFilterBudget budget) {
+        this(budget, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param budget       limits the cost of the filters the parser accepts
+     * @param namedFilters the filters that can be referred to with @name, or null for none
+     */
+    public SquigglyDescentParser(SquigglyFilterBudget budget, SquigglyNamedFilters namedFilters) {
+        this.budget = budget;
+        this.namedFilters = namedFilters;
+    }
+
+    /**
+     * Parse a filter expression.
+     *
+     * @param filter the filter expression, trimmed and not empty
+     * @return compiled nodes
+     * @throws SquigglyParseException if the expression is invalid
+     * @throws SquigglyFilterBudgetException if the expression goes over the budget
+     */
+    public List<SquigglyNode> parse(String filter) {
+        return new Parse(filter, new SquigglyNodeBuilder(budget), namedFilters, 0).parse();
+    }
+
+    // the state of a single parse
+    private static class Parse {
+        private final String filter;
+        private final SquigglyNodeBuilder builder;
+        private final SquigglyNamedFilters namedFilters;
+        private final int referenceDepth;
+        private int type;
+        private int start;
+        private int end;
+        private SquigglyParseException invalidPattern;
+
+        Parse(String filter, SquigglyNodeBuilder builder, SquigglyNamedFilters namedFilters, int referenceDepth) {
+            this.filter = filter;
+            this.builder = builder;
+            this.namedFilters = namedFilters;
+            this.referenceDepth = referenceDepth;
+            scan(0);
+        }
+
+        List<SquigglyNode> parse() {
+            expressionList(builder.getRoot());
+            expect(EOF);
+
+            if (invalidPattern != null) {
+                throw invalidPattern;
+            }
+
+            return builder.build();
+        }
+
+        // expression (',' expression)*
+        private void expressionList(SquigglyNodeBuilder.MutableNode parent) {
+            expression(parent);
+
+            while (type == COMMA) {
+                next();
+                expression(parent);
+            }
+        }
+
+        private void expression(SquigglyNodeBuilder.MutableNode parent) {
+            switch (type) {
+                case DASH:
+                    next();
+                    negatedExpression(parent);
+                    break;
+                case DEEP:
+                    next();
+                    builder.addField(parent, builder.anyDeepName());
+                    break;
+                case LPAREN:
+                    next();
+                    nestedExpression(parent, fieldList(), true);
+                    break;
+                case REFERENCE:
+                    reference(parent);
+                    next();
+                    break;
+                default:
+                    List<SquigglyName> path = dotPath();
+
+                    if (path.size() > 1) {
+                        parent = builder.addDotPath(parent, path);
+                    }
+
+                    nestedExpression(parent, Collections.singletonList(path.get(path.size() - 1)), false);
+                    break;
+            }
+        }
+
+        // @name, which stands for the expression of the named filter
+        private void reference(SquigglyNodeBuilder.MutableNode parent) {
+            String name = filter.substring(start + 1, end);
+            String expression = (namedFilters == null) ? null : namedFilters.getExpression(name);
+
+            if (expression == null) {
+                throw error("expecting a named filter");
+            }
+
+            if (referenceDepth >= MAX_REFERENCE_DEPTH) {
+                throw error("named filters nested more than " + MAX_REFERENCE_DEPTH + " deep");
+            }
+
+            if (expression.isEmpty()) {
+                return;
+            }
+
+            Parse parse = new Parse(expression, builder, namedFilters, referenceDepth + 1);
+            parse.expressionList(parent);
+            parse.expect(EOF);
+        }
+
+        // '-' field | '-' dot_path
+        private void negatedExpression(SquigglyNodeBuilder.MutableNode parent) {
+            List<SquigglyName> path = dotPath();
+
+            if (path.size() > 1) {
+                builder.addNegatedDotPath(parent, path);
+            } else {
+                builder.addNegatedField(parent, path.get(0));
+            }
+        }
+
+        // '(' field (('|'|',') field)* ')', after the '('
+        private List<SquigglyName> fieldList() {
+            List<SquigglyName> names = new ArrayList<>();
+            names.add(field());
+
+            while (type == PIPE || type == COMMA) {
+                next();
+                names.add(field());
+            }
+
+            expect(RPAREN);
+            next();
+            return names;
+        }
+
+        // field ('.' field)*
+        private List<SquigglyName> dotPath() {
+            SquigglyName name = field();
+
+            if (type != DOT) {
+                return Collections.singletonList(name);
+            }
+
+            List<SquigglyName> path = new ArrayList<>();
+            path.add(name);
+
+            while (type == DOT) {
+                next();
+                path.add(field());
+            }
+
+            return path;
+        }
+
+        // the fields with an optional nested expression, or a required one after a field list.  like the visitor of
+        // the parse tree, the nested expression is parsed again for each field, so each gets its own nodes.
+        private void nestedExpression(SquigglyNodeBuilder.MutableNode parent, List<SquigglyName> names, boolean required) {
+            if (type != LSQUIGGLY && type != LBRACE) {
+                if (required) {
+                    throw error("expecting '{' or '['");
+                }
+
+                for (SquigglyName name : names) {
+                    builder.addField(parent, name);
+                }
+
+                return;
+            }
+
+            int close = (type == LSQUIGGLY) ? RSQUIGGLY : RBRACE;
+            next();
+
+            if (type == close) {
+                next();
+
+                for (SquigglyName name : names) {
+                    builder.setEmptyNested(builder.addField(parent, name));
+                }
+
+                return;
+            }
+
+            int nestedStart = start;
+
+            for (SquigglyName name : names) {
+                scan(nestedStart);
+
+                SquigglyNodeBuilder.MutableNode node = builder.addField(parent, name);
+                builder.setNested(node);
+                expressionList(node);
+                expect(close);
+            }
+
+            next();
+        }
+
+        // exact_field | regex_field | wildcard_shallow_field | wildcard_field
+        private SquigglyName field() {
+            switch (type) {
+                case TILDE:
+                case SLASH:
+                    return regexField();
+                case IDENTIFIER:
+                case STAR:
+                case QUESTION:
+                    return wildcardField();
+                default:
+                    throw error("expecting a field");
+            }
+        }
+
+        // '~' regex_pattern '~' regex_flag* | '/' regex_pattern '/' regex_flag*
+        private SquigglyName regexField() {
+            int delimiter = type;
+            next();
+
+            int patternStart = start;
+
+            while (isRegexPatternToken(type)) {
+                next();
+            }
+
+            if (start == patternStart) {
+                throw error("expecting a regex pattern");
+            }
+
+            String pattern = filter.substring(patternStart, start);
+            expect(delimiter);
+            next();
+
+            Set<String> flags = new HashSet<>();
+
+            while (type == FLAG) {
+                flags.add(filter.substring(start, end));
+                next();
+            }
+
+            // the parse tree was checked before any regex was compiled, so a syntax error further on wins over an
+            // invalid pattern
+            try {
+                return builder.regexName(pattern, flags);
+            } catch (PatternSyntaxException e) {
+                if (invalidPattern == null) {
+                    invalidPattern = SquigglyParseException.invalidPattern(1, patternStart, e);
+                }
+
+                return builder.exactName(pattern);
+            }
+        }
+
+        // exact fields and wildcard characters, alternating.  without a wildcard it's an exact field, and a lone * is
+        // the shallow wildcard.
+        private SquigglyName wildcardField() {
+            int fieldStart = start;
+            boolean exact = false;
+            boolean wildcard = false;
+            boolean lastExact = false;
+
+            while (true) {
+                if (type == IDENTIFIER && !lastExact) {
+                    exactField();
+                    exact = true;
+                    lastExact = true;
+                } else if ((type == STAR || type == QUESTION) && (lastExact || start == fieldStart)) {
+                    next();
+                    wildcard = true;
+                    lastExact = false;
+                } else {
+                    break;
+                }
+            }
+
+            String text = filter.substring(fieldStart, start);
+
+            if (!wildcard) {
+                return builder.exactName(text);
+            }
+
+            if (exact) {
+                return builder.wildcardName(text);
+            }
+
+            if ("*".equals(text)) {
+                return builder.anyShallowName();
+            }
+
+            throw error("expecting a field");
+        }
+
+        // IDENTIFIER ('-' | IDENTIFIER)*
+        private void exactField() {
+            next();
+
+            while (type == DASH || type == IDENTIFIER) {
+                next();
+            }
+        }
+
+        private void expect(int expectedType) {
+            if (type != expectedType) {
+                throw error("expecting " + describe(expectedType));
+            }
+        }
+
+        private void next() {
+            scan(end);
+        }
+
+        // scan the token at the given position
+        private void scan(int position) {
+            start = position;
+
+            if (position >= filter.length()) {
+                type = EOF;
+                end = position;
+                return;
+            }
+
+            char c = filter.charAt(position);
+            end = position + 1;
+
+            if (isFieldChar(c)) {
+                while (end < filter.length() && isFieldChar(filter.charAt(end))) {
+                    end++;
+                }
+
+                type = (c == 'i' && end == position + 1) ? FLAG : IDENTIFIER;
+                return;
+            }
+
+            switch (c) {
+                case ',':
+                    type = COMMA;
+                    break;
+                case '(':
+                    type = LPAREN;
+                    break;
+                case '|':
+                    type = PIPE;
+                    break;
+                case ')':
+                    type = RPAREN;
+                    break;
+                case '-':
+                    type = DASH;
+                    break;
+                case '.':
+                    type = DOT;
+                    break;
+                case '~':
+                    type = TILDE;
+                    break;
+                case '/':
+                    type = SLASH;
+                    break;
+                case '?':
+                    type = QUESTION;
+                    break;
+                case '[':
+                    type = LBRACE;
+                    break;
+                case ']':
+                    type = RBRACE;
+                    break;
+                case '{':
+                    type = LSQUIGGLY;
+                    break;
+                case '}':
+                    type = RSQUIGGLY;
+                    break;
+                case '@':
+                    type = REFERENCE;
+
+                    while (end < filter.length() && isFieldChar(filter.charAt(end))) {
+                        end++;
+                    }
+                    break;
+                case '*':
+                    if (end < filter.length() && filter.charAt(end) == '*') {
+                        type = DEEP;
+                        end++;
+                    } else {
+                        type = STAR;
+                    }
+                    break;
+                default:
+                    type = REGEX_CHAR;
+                    break;
+            }
+        }
+
+        private SquigglyParseException error(String message) {
+            String input = (type == EOF) ? "<EOF>" : "'" + filter.substring(start, end) + "'";
+            return new SquigglyParseException(1, start, "unexpected input " + input + " " + message);
+        }
+    }
+
+    private static boolean isFieldChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '$' || c == '_';
+    }
+
+    private static boolean isRegexPatternToken(int type) {
+        switch (type) {
+            case DOT:
+            case PIPE:
+            case COMMA:
+            case LSQUIGGLY:
+            case RSQUIGGLY:
+            case LBRACE:
+            case RBRACE:
+            case DASH:
+            case REGEX_CHAR:
+            case IDENTIFIER:
+            case STAR:
+            case REFERENCE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String describe(int type) {
+        switch (type) {
+            case EOF:
+                return "<EOF>";
+            case RPAREN:
+                return "')'";
+            case TILDE:
+                return "'~'";
+            case SLASH:
+                return "'/'";
+            case RBRACE:
+                return "']'";
+            case RSQUIGGLY:
+                return "'}'";
+            default:
+                return "token " + type;
+        }
+    }
+}
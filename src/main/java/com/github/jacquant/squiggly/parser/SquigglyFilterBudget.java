@@ -0,0 +1,158 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import com.github.jacquant.squiggly.metric.source.SquigglyMetricsSource;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the cost of the filter expressions a parser accepts.
+ * <p>The cost of a filter is counted while it's parsed, in four parts:</p>
+ * <ul>
+ * <li>nodes: the fields of the filter, counting a field once for each place it ends up in, so a nested expression
+ * after a field list counts once per field of the list</li>
+ * <li>depth: how deeply the fields are nested</li>
+ * <li>pattern complexity: the total length of the wildcard and regex names</li>
+ * <li>deep wildcards: the number of ** names</li>
+ * </ul>
+ * <p>The parse stops with a {@link SquigglyFilterBudgetException} as soon as one of the parts goes over its limit, so
+ * a filter over the budget never gets fully parsed, let alone used for serialization.  A limit of 0 disables it.</p>
+ */
+@ThreadSafe
+public class SquigglyFilterBudget {
+
+    /**
+     * A budget without limits.
+     */
+    public static final SquigglyFilterBudget UNLIMITED = new SquigglyFilterBudget(0, 0, 0, 0);
+
+    private final int maxNodes;
+    private final int maxDepth;
+    private final int maxPatternComplexity;
+    private final int maxDeepWildcards;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder downgraded = new LongAdder();
+    private final AtomicLong largestNodes = new AtomicLong();
+    private final AtomicLong largestDepth = new AtomicLong();
+    private final AtomicLong largestPatternComplexity = new AtomicLong();
+    private final AtomicLong largestDeepWildcards = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param maxNodes             maximum number of nodes, 0 for no limit
+     * @param maxDepth             maximum depth, 0 for no limit
+     * @param maxPatternComplexity maximum total length of the wildcard and regex names, 0 for no limit
+     * @param maxDeepWildcards     maximum number of ** names, 0 for no limit
+     */
+    public SquigglyFilterBudget(int maxNodes, int maxDepth, int maxPatternComplexity, int maxDeepWildcards) {
+        this.maxNodes = maxNodes;
+        this.maxDepth = maxDepth;
+        this.maxPatternComplexity = maxPatternComplexity;
+        this.maxDeepWildcards = maxDeepWildcards;
+    }
+
+    /**
+     * Create a budget with the limits in {@link SquigglyConfig}.
+     *
+     * @return budget
+     */
+    public static SquigglyFilterBudget fromConfig() {
+        return new SquigglyFilterBudget(SquigglyConfig.getParserBudgetMaxNodes(), SquigglyConfig.getParserBudgetMaxDepth(),
+                SquigglyConfig.getParserBudgetMaxPatternComplexity(), SquigglyConfig.getParserBudgetMaxDeepWildcards());
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxPatternComplexity() {
+        return maxPatternComplexity;
+    }
+
+    public int getMaxDeepWildcards() {
+        return maxDeepWildcards;
+    }
+
+    /**
+     * Count a filter that was replaced by a safe default because it went over the budget.
+     */
+    public void recordDowngrade() {
+        downgraded.increment();
+    }
+
+    // called by the node builder each time the cost of the filter it's building goes up
+    void check(int nodes, int depth, int patternComplexity, int deepWildcards) {
+        if (isOver(nodes, maxNodes)) {
+            throw reject("nodes", maxNodes);
+        }
+
+        if (isOver(depth, maxDepth)) {
+            throw reject("levels of nesting", maxDepth);
+        }
+
+        if (isOver(patternComplexity, maxPatternComplexity)) {
+            throw reject("characters of wildcard and regex names", maxPatternComplexity);
+        }
+
+        if (isOver(deepWildcards, maxDeepWildcards)) {
+            throw reject("** names", maxDeepWildcards);
+        }
+    }
+
+    // called by the node builder with the cost of a filter it built
+    void admit(int nodes, int depth, int patternComplexity, int deepWildcards) {
+        admitted.increment();
+        accumulateMax(largestNodes, nodes);
+        accumulateMax(largestDepth, depth);
+        accumulateMax(largestPatternComplexity, patternComplexity);
+        accumulateMax(largestDeepWildcards, deepWildcards);
+    }
+
+    private static boolean isOver(int value, int max) {
+        return max > 0 && value > max;
+    }
+
+    private SquigglyFilterBudgetException reject(String part, int max) {
+        rejected.increment();
+        return new SquigglyFilterBudgetException("filter has more than " + max + " " + part);
+    }
+
+    private static void accumulateMax(AtomicLong largest, long value) {
+        long current = largest.get();
+
+        while (value > current && !largest.compareAndSet(current, value)) {
+            current = largest.get();
+        }
+    }
+
+    /**
+     * Get a source of the number of filters admitted, rejected and downgraded, and of the largest cost of an admitted
+     * filter.
+     *
+     * @param prefix prefix of the metric names
+     * @return source
+     */
+    public SquigglyMetricsSource getMetricsSource(final String prefix) {
+        return new SquigglyMetricsSource() {
+            @Override
+            public void applyMetrics(Map<String, Object> map) {
+                map.put(prefix + "admittedCount", admitted.sum());
+                map.put(prefix + "downgradedCount", downgraded.sum());
+                map.put(prefix + "largestDeepWildcards", largestDeepWildcards.get());
+                map.put(prefix + "largestDepth", largestDepth.get());
+                map.put(prefix + "largestNodes", largestNodes.get());
+                map.put(prefix + "largestPatternComplexity", largestPatternComplexity.get());
+                map.put(prefix + "rejectedCount", rejected.sum());
+            }
+        };
+    }
+}
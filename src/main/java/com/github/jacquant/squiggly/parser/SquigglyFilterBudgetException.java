@@ -0,0 +1,21 @@
+package com.github.jacquant.squiggly.parser;
+
+/**
+ * Thrown when a filter expression goes over the {@link SquigglyFilterBudget} of the parser.
+ */
+public class SquigglyFilterBudgetException extends SquigglyParseException {
+
+    /**
+     * Constructor.
+     *
+     * @param description which limit the filter went over
+     */
+    public SquigglyFilterBudgetException(String description) {
+        super(1, 0, description);
+    }
+
+    @Override
+    SquigglyParseException copy() {
+        return new SquigglyFilterBudgetException(getDescription());
+    }
+}
@@ -0,0 +1,282 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import com.github.jacquant.squiggly.metric.source.GuavaCacheSquigglyMetricsSource;
+import com.github.jacquant.squiggly.metric.source.SquigglyMetricsSource;
+import com.github.jacquant.squiggly.name.AnyDeepName;
+import com.github.jacquant.squiggly.name.AnyShallowName;
+import com.github.jacquant.squiggly.name.ExactName;
+import com.github.jacquant.squiggly.name.SquigglyName;
+import com.github.jacquant.squiggly.view.PropertyView;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Composes parsed filters into new filters without going back to the filter expressions.
+ * <p>Filters are composed on their nodes, so an expression is never concatenated with another one and parsed again.
+ * The composed nodes are interned like parsed ones: composing filters gives the very same nodes as parsing the
+ * equivalent expression, and shares whatever was compiled from them.</p>
+ * <p>Since parsed filters are interned, the identity of a node list stands for the filter.  Composites are cached by
+ * the identities of their operands, so composing the same filters again is a single lookup.</p>
+ */
+@ThreadSafe
+public class SquigglyFilterComposer {
+
+    private static final int WRAP = 0;
+    private static final int INTERSECT = 1;
+    private static final int UNION = 2;
+
+    // Caches composed filters by the identities of their operands
+    private static final Cache<CompositeKey, List<SquigglyNode>> CACHE;
+    private static final SquigglyMetricsSource METRICS_SOURCE;
+
+    static {
+        CACHE = CacheBuilder.from(SquigglyConfig.getParserCompositeCacheSpec()).build();
+        METRICS_SOURCE = new GuavaCacheSquigglyMetricsSource("squiggly.parser.compositeCache.", CACHE);
+    }
+
+    /**
+     * Wrap a filter in a field, like items{filter}.  An empty filter includes nothing, as it does when it's parsed, so
+     * it's wrapped into items{}.
+     *
+     * @param fieldName name of the field
+     * @param nodes     parsed filter
+     * @return wrapped filter
+     */
+    public List<SquigglyNode> wrap(String fieldName, List<SquigglyNode> nodes) {
+        SquigglyName name = SquigglyNodeInterner.name(ExactName.class, fieldName, null, () -> new ExactName(fieldName));
+        CompositeKey key = new CompositeKey(WRAP, name, nodes);
+        List<SquigglyNode> composite = CACHE.getIfPresent(key);
+
+        if (composite == null) {
+            SquigglyNodeBuilder builder = new SquigglyNodeBuilder(SquigglyFilterBudget.UNLIMITED);
+            SquigglyNodeBuilder.MutableNode field = builder.addField(builder.getRoot(), name);
+
+            if (nodes.isEmpty()) {
+                builder.setEmptyNested(field);
+            } else {
+                builder.setNested(field);
+                builder.addNodes(field, nodes);
+            }
+
+            composite = builder.build();
+            CACHE.put(key, composite);
+        }
+
+        return composite;
+    }
+
+    /**
+     * Restrict a filter to the fields a mandatory mask allows.  Exclusions of either filter are kept, and a mask made
+     * only of exclusions, like -password, lets everything else through.
+     * <p>A field keeps its nested filter intersected with the mask's nested filter.  A field without a nested filter on
+     * one side takes the nested filter of the other side.  Views in the mask are compared by name only.</p>
+     * <p>An empty filter includes nothing, so intersecting with an empty filter gives an empty filter.</p>
+     *
+     * @param nodes parsed filter
+     * @param mask  parsed mask
+     * @return filter allowed by the mask
+     */
+    public List<SquigglyNode> intersect(List<SquigglyNode> nodes, List<SquigglyNode> mask) {
+        if (nodes.isEmpty() || mask.isEmpty()) {
+            return nodes.isEmpty() ? nodes : mask;
+        }
+
+        CompositeKey key = new CompositeKey(INTERSECT, nodes, mask);
+        List<SquigglyNode> composite = CACHE.getIfPresent(key);
+
+        if (composite == null) {
+            SquigglyNodeBuilder builder = new SquigglyNodeBuilder(SquigglyFilterBudget.UNLIMITED);
+            intersect(builder, builder.getRoot(), nodes, mask);
+            composite = builder.build();
+            CACHE.put(key, composite);
+        }
+
+        return composite;
+    }
+
+    /**
+     * Add default fields to a filter, like joining the two expressions with a comma.  An empty filter includes
+     * nothing, so the union with an empty filter is the other filter.
+     *
+     * @param nodes    parsed filter
+     * @param defaults parsed default fields
+     * @return filter including the fields of both
+     */
+    public List<SquigglyNode> union(List<SquigglyNode> nodes, List<SquigglyNode> defaults) {
+        if (nodes.isEmpty() || defaults.isEmpty()) {
+            return nodes.isEmpty() ? defaults : nodes;
+        }
+
+        CompositeKey key = new CompositeKey(UNION, nodes, defaults);
+        List<SquigglyNode> composite = CACHE.getIfPresent(key);
+
+        if (composite == null) {
+            SquigglyNodeBuilder builder = new SquigglyNodeBuilder(SquigglyFilterBudget.UNLIMITED);
+            builder.addNodes(builder.getRoot(), nodes);
+            builder.addNodes(builder.getRoot(), defaults);
+            composite = builder.build();
+            CACHE.put(key, composite);
+        }
+
+        return composite;
+    }
+
+    // one level of the intersection.  below the top level, a field without children has no nested filter, so an empty
+    // side puts no restriction on the other.
+    private void intersect(SquigglyNodeBuilder builder, SquigglyNodeBuilder.MutableNode parent, List<SquigglyNode> nodes, List<SquigglyNode> mask) {
+        if (mask.isEmpty() || nodes.isEmpty()) {
+            builder.addNodes(parent, nodes.isEmpty() ? mask : nodes);
+            return;
+        }
+
+        List<SquigglyNode> maskExclusions = new ArrayList<>();
+        List<SquigglyNode> allowed = new ArrayList<>();
+        Set<String> excludedNames = new HashSet<>();
+        boolean onlyExclusions = true;
+
+        for (SquigglyNode maskNode : mask) {
+            if (maskNode.isNegated()) {
+                maskExclusions.add(maskNode);
+                excludedNames.add(maskNode.getName());
+            } else {
+                allowed.add(maskNode);
+                onlyExclusions = onlyExclusions && (isBaseView(maskNode) || isExclusionPath(maskNode));
+            }
+        }
+
+        SquigglyNodeIndex allowedIndex = SquigglyNodeIndex.of(allowed);
+
+        for (SquigglyNode node : nodes) {
+            if (node.isNegated()) {
+                builder.addNode(parent, node);
+            } else if (!(node.getSquigglyName() instanceof ExactName)) {
+                intersectPattern(builder, parent, node, allowed, onlyExclusions);
+            } else if (!excludedNames.contains(node.getName())) {
+                SquigglyNode maskNode = allowedIndex.findBest(node.getName());
+
+                if (maskNode != null && !(onlyExclusions && isBaseView(maskNode))) {
+                    addIntersection(builder, parent, node.getSquigglyName(), node, maskNode);
+                } else if (onlyExclusions) {
+                    builder.addNode(parent, node);
+                }
+            }
+        }
+
+        for (SquigglyNode maskNode : maskExclusions) {
+            builder.addNode(parent, maskNode);
+        }
+    }
+
+    // a wildcard, regex, * or ** field only keeps the names of the mask it matches, unless the mask only excludes
+    private void intersectPattern(SquigglyNodeBuilder builder, SquigglyNodeBuilder.MutableNode parent, SquigglyNode node, List<SquigglyNode> allowed, boolean onlyExclusions) {
+        if (onlyExclusions) {
+            builder.addNode(parent, node);
+        }
+
+        SquigglyName name = node.getSquigglyName();
+
+        for (SquigglyNode maskNode : allowed) {
+            SquigglyName maskName = maskNode.getSquigglyName();
+
+            if (onlyExclusions && isBaseView(maskNode)) {
+                continue;
+            }
+
+            if (isSameName(name, maskName) || maskName instanceof AnyDeepName || (maskName instanceof AnyShallowName && !(name instanceof AnyDeepName))) {
+                addIntersection(builder, parent, name, node, maskNode);
+            } else if (node.match(maskName.getName()) >= 0 && (maskName instanceof ExactName || name instanceof AnyShallowName || name instanceof AnyDeepName)) {
+                addIntersection(builder, parent, maskName, node, maskNode);
+            }
+        }
+    }
+
+    private void addIntersection(SquigglyNodeBuilder builder, SquigglyNodeBuilder.MutableNode parent, SquigglyName name, SquigglyNode node, SquigglyNode maskNode) {
+        SquigglyNodeBuilder.MutableNode field = builder.addField(parent, name);
+
+        if (node.isSquiggly() || maskNode.isSquiggly()) {
+            builder.setNested(field);
+        }
+
+        if (node.isEmptyNested() || maskNode.isEmptyNested()) {
+            builder.setEmptyNested(field);
+            return;
+        }
+
+        intersect(builder, field, node.getChildren(), maskNode.getChildren());
+    }
+
+    // the base view the parser adds next to exclusions
+    private static boolean isBaseView(SquigglyNode node) {
+        return node.getSquigglyName() instanceof ExactName
+                && PropertyView.BASE_VIEW.equals(node.getName())
+                && node.getChildren().isEmpty()
+                && !node.isNegated();
+    }
+
+    // a.b of -a.b, which only holds exclusions
+    private static boolean isExclusionPath(SquigglyNode node) {
+        if (node.isNegated() || node.getChildren().isEmpty()) {
+            return false;
+        }
+
+        boolean excludes = false;
+
+        for (SquigglyNode child : node.getChildren()) {
+            if (child.isNegated() || isExclusionPath(child)) {
+                excludes = true;
+            } else if (!isBaseView(child)) {
+                return false;
+            }
+        }
+
+        return excludes;
+    }
+
+    // names of parsed filters are interned, so only names built elsewhere need comparing
+    private static boolean isSameName(SquigglyName name, SquigglyName otherName) {
+        return name == otherName
+                || (name instanceof ExactName && otherName instanceof ExactName && name.getName().equals(otherName.getName()));
+    }
+
+    public static SquigglyMetricsSource getMetricsSource() {
+        return METRICS_SOURCE;
+    }
+
+    // operands are compared by identity, since parsed and composed filters are interned
+    private static class CompositeKey {
+        private final int operation;
+        private final Object left;
+        private final Object right;
+
+        CompositeKey(int operation, Object left, Object right) {
+            this.operation = operation;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            CompositeKey that = (CompositeKey) o;
+
+            return operation == that.operation && left == that.left && right == that.right;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = operation;
+            result = 31 * result + System.identityHashCode(left);
+            result = 31 * result + System.identityHashCode(right);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A registry of filters defined on the server, which clients refer to by name, as in fields=@issueSummary.
+ * <p>A filter is parsed when it's registered, and its nodes are kept for as long as it's registered, so a filter
+ * that's only a reference is resolved with a single lookup and never goes through the node cache.  A reference can
+ * also be combined with other expressions, as in @issueSummary,watchers{id} or fields{@userSummary}, which parses
+ * as if the expression of the named filter was written in its place.</p>
+ * <p>Registering or removing a filter changes what expressions referring to it parse to, so the parser forgets the
+ * expressions and errors it has cached whenever its registry changes.</p>
+ */
+@ThreadSafe
+public class SquigglyNamedFilters {
+
+    private static final String NAME_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789$_";
+
+    private final ConcurrentMap<String, NamedFilter> filters = new ConcurrentHashMap<>();
+    private final SquigglyDescentParser parser = new SquigglyDescentParser(SquigglyFilterBudget.UNLIMITED, this);
+    private final AtomicLong version = new AtomicLong();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a registry with the filters in {@link SquigglyConfig}.
+     *
+     * @return registry
+     */
+    public static SquigglyNamedFilters fromConfig() {
+        SquigglyNamedFilters namedFilters = new SquigglyNamedFilters();
+        namedFilters.registerAll(SquigglyConfig.getParserNamedFilters());
+        return namedFilters;
+    }
+
+    /**
+     * Register filters that may refer to each other, in whatever order they're given.
+     *
+     * @param expressions filter expressions by name
+     * @throws SquigglyParseException if an expression is invalid
+     */
+    public void registerAll(Map<String, String> expressions) {
+        Map<String, String> remaining = new LinkedHashMap<>(expressions);
+
+        // a filter can only be parsed once the filters it refers to are registered
+        while (!remaining.isEmpty()) {
+            SquigglyParseException error = null;
+            boolean registered = false;
+
+            for (Iterator<Map.Entry<String, String>> iterator = remaining.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<String, String> entry = iterator.next();
+
+                try {
+                    register(entry.getKey(), entry.getValue());
+                    iterator.remove();
+                    registered = true;
+                } catch (SquigglyParseException e) {
+                    error = e;
+                }
+            }
+
+            if (!registered) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Register a filter, replacing the filter with the same name.
+     *
+     * @param name       name of the filter, made of letters, digits, $ and _
+     * @param expression filter expression
+     * @throws IllegalArgumentException if the name is invalid
+     * @throws SquigglyParseException   if the expression is invalid
+     */
+    public void register(String name, String expression) {
+        if (StringUtils.isEmpty(name) || !StringUtils.containsOnly(name, NAME_CHARS)) {
+            throw new IllegalArgumentException("Invalid filter name " + name);
+        }
+
+        expression = StringUtils.trimToEmpty(expression);
+        List<SquigglyNode> nodes = expression.isEmpty() ? Collections.<SquigglyNode>emptyList() : parser.parse(expression);
+        filters.put(name, new NamedFilter(expression, nodes));
+        changed();
+    }
+
+    /**
+     * Remove a filter.
+     *
+     * @param name name of the filter
+     */
+    public void unregister(String name) {
+        if (filters.remove(name) != null) {
+            changed();
+        }
+    }
+
+    /**
+     * Get the names of the filters.
+     *
+     * @return names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(filters.keySet()));
+    }
+
+    /**
+     * Get the expression of a filter.
+     *
+     * @param name name of the filter
+     * @return expression, or null if there's no such filter
+     */
+    public String getExpression(String name) {
+        NamedFilter filter = filters.get(name);
+        return (filter == null) ? null : filter.expression;
+    }
+
+    /**
+     * Get the nodes of a filter.
+     *
+     * @param name name of the filter
+     * @return nodes, or null if there's no such filter
+     */
+    public List<SquigglyNode> getNodes(String name) {
+        NamedFilter filter = filters.get(name);
+        return (filter == null) ? null : filter.nodes;
+    }
+
+    // the number of changes so far, so a result built from the filters can tell whether they changed in the meantime
+    long getVersion() {
+        return version.get();
+    }
+
+    // run after every change
+    void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    // the version is bumped before the listeners run, so a result cached after they ran can still see the change
+    private void changed() {
+        version.incrementAndGet();
+
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private static class NamedFilter {
+        private final String expression;
+        private final List<SquigglyNode> nodes;
+
+        NamedFilter(String expression, List<SquigglyNode> nodes) {
+            this.expression = expression;
+            this.nodes = nodes;
+        }
+    }
+}
@@ -16,6 +16,7 @@ public class SquigglyNode {
 
     private final SquigglyName name;
     private final List<SquigglyNode> children;
+    private final SquigglyNodeIndex childIndex;
     private final boolean squiggly;
     private final boolean negated;
     private final boolean emptyNested;
@@ -34,6 +35,7 @@ public class SquigglyNode {
         this.name = name;
         this.negated = negated;
         this.children = ImmutableList.copyOf(children);
+        this.childIndex = SquigglyNodeIndex.of(this.children);
         this.squiggly = squiggly;
         this.emptyNested = emptyNested;
     }
@@ -57,6 +59,15 @@ public class SquigglyNode {
         return name.getName();
     }
 
+    /**
+     * Get the parsed name of the node.
+     *
+     * @return name
+     */
+    public SquigglyName getSquigglyName() {
+        return name;
+    }
+
     /**
      * Get the node's children.
      *
@@ -66,6 +77,15 @@ public class SquigglyNode {
         return children;
     }
 
+    /**
+     * Get the index of the node's children.
+     *
+     * @return child index
+     */
+    public SquigglyNodeIndex getChildIndex() {
+        return childIndex;
+    }
+
     /**
      * A node is considered squiggly if it is comes right before a nested expression.
      * <p>For example, given the filter expression:</p>
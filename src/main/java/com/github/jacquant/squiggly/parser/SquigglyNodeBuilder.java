@@ -0,0 +1,310 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import com.github.jacquant.squiggly.name.AnyDeepName;
+import com.github.jacquant.squiggly.name.AnyShallowName;
+import com.github.jacquant.squiggly.name.ExactName;
+import com.github.jacquant.squiggly.name.RegexName;
+import com.github.jacquant.squiggly.name.SquigglyName;
+import com.github.jacquant.squiggly.name.WildcardName;
+import com.github.jacquant.squiggly.view.PropertyView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Builds the nodes of a filter expression as it's being parsed.  The parsers call one method per construct of the
+    grammar, and the builder merges repeated fields, adds the base view next to negated fields and interns the result.
+
+    A builder is used for a single parse, or a single composition of parsed filters.
+ */
+class SquigglyNodeBuilder {
+
+    private static final Comparator<SquigglyNode> SIBLING_ORDER = new Comparator<SquigglyNode>() {
+        @Override
+        public int compare(SquigglyNode o1, SquigglyNode o2) {
+            return o1.getName().compareTo(o2.getName());
+        }
+    };
+
+    private final MutableNode root = new MutableNode(exactName("root")).dotPathed(true);
+    private final SquigglyFilterBudget budget;
+    private int nodes;
+    private int depth;
+    private int patternComplexity;
+    private int deepWildcards;
+
+    SquigglyNodeBuilder(SquigglyFilterBudget budget) {
+        this.budget = budget;
+    }
+
+    MutableNode getRoot() {
+        return root;
+    }
+
+    // field, (field|field) and the last field of a dot path, with or without a nested expression
+    MutableNode addField(MutableNode parent, SquigglyName name) {
+        return parent.addChild(newNode(parent, name));
+    }
+
+    // all but the last field of a dot path.  returns the parent of the last field.
+    MutableNode addDotPath(MutableNode parent, List<SquigglyName> names) {
+        parent.squiggly = true;
+
+        for (int i = 0; i < names.size() - 1; i++) {
+            parent = parent.addChild(newNode(parent, names.get(i)).dotPathed(true));
+            parent.squiggly = true;
+        }
+
+        return parent;
+    }
+
+    // -field
+    void addNegatedField(MutableNode parent, SquigglyName name) {
+        parent.addChild(newNode(parent, name).negated(true));
+    }
+
+    // -field.field
+    void addNegatedDotPath(MutableNode parent, List<SquigglyName> names) {
+        for (SquigglyName name : names) {
+            parent.squiggly = true;
+
+            MutableNode mutableNode = newNode(parent, name);
+            mutableNode.negativeParent = true;
+
+            parent = parent.addChild(mutableNode.dotPathed(true));
+        }
+
+        parent.negated(true);
+        parent.negativeParent = false;
+    }
+
+    // a node of an already built filter and everything under it, merged with the parent's children like a field
+    MutableNode addNode(MutableNode parent, SquigglyNode node) {
+        MutableNode mutableNode = newNode(parent, node.getSquigglyName());
+        mutableNode.negated = node.isNegated();
+        mutableNode.squiggly = node.isSquiggly();
+        mutableNode.emptyNested = node.isEmptyNested();
+        mutableNode = parent.addChild(mutableNode);
+        addNodes(mutableNode, node.getChildren());
+        return mutableNode;
+    }
+
+    void addNodes(MutableNode parent, List<SquigglyNode> nodes) {
+        for (SquigglyNode node : nodes) {
+            addNode(parent, node);
+        }
+    }
+
+    // field{}
+    void setEmptyNested(MutableNode node) {
+        node.emptyNested = true;
+    }
+
+    // field{...}, before the nested expression is added
+    void setNested(MutableNode node) {
+        node.squiggly = true;
+    }
+
+    List<SquigglyNode> build() {
+        budget.admit(nodes, depth, patternComplexity, deepWildcards);
+        analyze(root);
+        // the root node is only weakly held by the interner, so the list it returns is interned on its own
+        return SquigglyNodeInterner.nodes(root.toSquigglyNode().getChildren());
+    }
+
+    SquigglyName exactName(String name) {
+        return SquigglyNodeInterner.name(ExactName.class, name, null, () -> new ExactName(name));
+    }
+
+    SquigglyName wildcardName(String name) {
+        patternComplexity += name.length();
+        checkBudget();
+        return SquigglyNodeInterner.name(WildcardName.class, name, null, () -> new WildcardName(name));
+    }
+
+    SquigglyName regexName(String pattern, Set<String> flags) {
+        patternComplexity += pattern.length();
+        checkBudget();
+        return SquigglyNodeInterner.name(RegexName.class, pattern, flags, () -> new RegexName(pattern, flags));
+    }
+
+    SquigglyName anyShallowName() {
+        return AnyShallowName.get();
+    }
+
+    SquigglyName anyDeepName() {
+        deepWildcards++;
+        checkBudget();
+        return AnyDeepName.get();
+    }
+
+    // every field of the filter goes through here, even the ones merged into an existing node afterwards
+    private MutableNode newNode(MutableNode parent, SquigglyName name) {
+        MutableNode node = new MutableNode(name);
+        node.depth = parent.depth + 1;
+        nodes++;
+        depth = Math.max(depth, node.depth);
+        checkBudget();
+        return node;
+    }
+
+    private void checkBudget() {
+        budget.check(nodes, depth, patternComplexity, deepWildcards);
+    }
+
+    private void analyze(MutableNode node) {
+        Map<MutableNode, MutableNode> nodesToAdd = new IdentityHashMap<>();
+        analyze(node, nodesToAdd);
+
+        for (Map.Entry<MutableNode, MutableNode> entry : nodesToAdd.entrySet()) {
+            entry.getKey().addChild(entry.getValue());
+        }
+    }
+
+    private void analyze(MutableNode node, Map<MutableNode, MutableNode> nodesToAdd) {
+        if (node.children != null && !node.children.isEmpty()) {
+            boolean allNegated = true;
+
+            for (MutableNode child : node.children.values()) {
+                if (!child.negated && !child.negativeParent) {
+                    allNegated = false;
+                    break;
+                }
+            }
+
+            if (allNegated) {
+                nodesToAdd.put(node, new MutableNode(exactName(PropertyView.BASE_VIEW)).dotPathed(node.dotPathed));
+            }
+
+            for (MutableNode child : node.children.values()) {
+                analyze(child, nodesToAdd);
+            }
+        }
+    }
+
+    // put siblings in a canonical order, so that filters listing the same fields in a different order parse to the same
+    // interned nodes and share everything compiled from them.  only runs of plain exact leaves are sorted:
+    //  - wildcard and regex names keep their order, since the later one wins a tie
+    //  - a property matched by no name goes to the first node naming a view it belongs to, so nodes with children or
+    //    flags keep their place, and so do leaves when the view they match is propagated to nested filters
+    private static void sortSiblings(List<SquigglyNode> nodes) {
+        if (SquigglyConfig.isFilterPropagateViewToNestedFilters()) {
+            return;
+        }
+
+        int start = 0;
+
+        while (start < nodes.size()) {
+            int end = start;
+
+            while (end < nodes.size() && isPlainExactLeaf(nodes.get(end))) {
+                end++;
+            }
+
+            if (end - start > 1) {
+                Collections.sort(nodes.subList(start, end), SIBLING_ORDER);
+            }
+
+            start = end + 1;
+        }
+    }
+
+    private static boolean isPlainExactLeaf(SquigglyNode node) {
+        return node.getSquigglyName() instanceof ExactName
+                && node.getChildren().isEmpty()
+                && !node.isNegated()
+                && !node.isSquiggly()
+                && !node.isEmptyNested();
+    }
+
+    static class MutableNode {
+        private boolean negativeParent;
+        private SquigglyName name;
+        private boolean negated;
+        private boolean squiggly;
+        private boolean emptyNested;
+        private Map<String, MutableNode> children;
+        private boolean dotPathed;
+        private MutableNode parent;
+        private int depth;
+
+        MutableNode(SquigglyName name) {
+            this.name = name;
+        }
+
+        SquigglyNode toSquigglyNode() {
+            if (name == null) {
+                throw new IllegalArgumentException("No Names specified");
+            }
+
+            List<SquigglyNode> childNodes;
+
+            if (children == null || children.isEmpty()) {
+                childNodes = Collections.emptyList();
+            } else {
+                childNodes = new ArrayList<>(children.size());
+
+                for (MutableNode child : children.values()) {
+                    childNodes.add(child.toSquigglyNode());
+                }
+
+                sortSiblings(childNodes);
+            }
+
+            return SquigglyNodeInterner.node(name, childNodes, negated, squiggly, emptyNested);
+        }
+
+        MutableNode dotPathed(boolean dotPathed) {
+            this.dotPathed = dotPathed;
+            return this;
+        }
+
+        MutableNode negated(boolean negated) {
+            this.negated = negated;
+            return this;
+        }
+
+        MutableNode addChild(MutableNode childToAdd) {
+            if (children == null) {
+                children = new LinkedHashMap<>();
+            }
+
+            String name = childToAdd.name.getName();
+            MutableNode existingChild = children.get(name);
+
+            if (existingChild == null) {
+                childToAdd.parent = this;
+                children.put(name, childToAdd);
+            } else {
+                if (childToAdd.children != null) {
+
+                    if (existingChild.children == null) {
+                        existingChild.children = childToAdd.children;
+                    } else {
+                        existingChild.children.putAll(childToAdd.children);
+                    }
+                }
+
+
+                existingChild.squiggly = existingChild.squiggly || childToAdd.squiggly;
+                existingChild.emptyNested = existingChild.emptyNested && childToAdd.emptyNested;
+                existingChild.dotPathed = existingChild.dotPathed && childToAdd.dotPathed;
+                existingChild.negativeParent = existingChild.negativeParent && childToAdd.negativeParent;
+                childToAdd = existingChild;
+            }
+
+            if (!childToAdd.dotPathed && dotPathed) {
+                dotPathed = false;
+            }
+
+            return childToAdd;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.name.AnyDeepName;
+import com.github.jacquant.squiggly.name.AnyShallowName;
+import com.github.jacquant.squiggly.name.ExactName;
+import com.github.jacquant.squiggly.name.RegexName;
+import com.github.jacquant.squiggly.name.SquigglyName;
+import com.github.jacquant.squiggly.name.WildcardName;
+import com.github.jacquant.squiggly.name.WildcardNameAutomaton;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of sibling nodes that finds the node best matching a property name.
+ * <p>Exact names are looked up in a hash map.  Since an exact match is stronger than any other match, the wildcard and
+ * regex nodes are only tried when no exact name matches, then * and ** are used as the weakest matches.  Like a
+ * linear scan of the nodes, the later node wins when two nodes match with the same strength.</p>
+ * <p>Sibling wildcard names are matched together by a {@link WildcardNameAutomaton} in one pass over the property
+ * name.  Regex names are only tried when they could still beat the strongest match found so far.</p>
+ * <p>A bean class has a known set of property names, so the index can be {@link #expand(Class, Collection) expanded}
+ * for a class into the best node of each of its names.  Wildcard and regex nodes that match none of them are left out,
+ * and names the class doesn't know about fall back to the full index.</p>
+ */
+@ThreadSafe
+public class SquigglyNodeIndex {
+
+    // below this many wildcard names, matching them one by one is as fast as the automaton
+    private static final int MIN_AUTOMATON_NAMES = 4;
+
+    private static final SquigglyNodeIndex EMPTY = new SquigglyNodeIndex(ImmutableMap.<String, SquigglyNode>of(), ImmutableList.<SquigglyNode>of(), null, null);
+
+    // marks the names of an expansion that no node matches
+    private static final SquigglyNode NO_MATCH = new SquigglyNode(new ExactName(""), Collections.<SquigglyNode>emptyList(), false, false, false);
+
+    private final Map<String, SquigglyNode> exactNodes;
+    private final SquigglyNode[] patternNodes;
+    private final int[] maxStrengths;
+    private final int[] automatonIndexes;
+    private final WildcardNameAutomaton automaton;
+    private final SquigglyNode anyShallowNode;
+    private final SquigglyNode anyDeepNode;
+    private final SquigglyNodeIndex fallback;
+    // weak keys, so an index doesn't keep the classes of serialized objects, and their class loaders, alive
+    private final Cache<Class, SquigglyNodeIndex> expansions = CacheBuilder.newBuilder().weakKeys().build();
+
+    private SquigglyNodeIndex(Map<String, SquigglyNode> exactNodes, List<SquigglyNode> patternNodes, SquigglyNode anyShallowNode, SquigglyNode anyDeepNode) {
+        this.exactNodes = exactNodes;
+        this.patternNodes = patternNodes.toArray(new SquigglyNode[0]);
+        this.maxStrengths = new int[this.patternNodes.length];
+        this.automatonIndexes = new int[this.patternNodes.length];
+        this.anyShallowNode = anyShallowNode;
+        this.anyDeepNode = anyDeepNode;
+        this.fallback = null;
+
+        List<WildcardName> wildcardNames = new ArrayList<>();
+
+        for (int i = 0; i < this.patternNodes.length; i++) {
+            SquigglyName name = this.patternNodes[i].getSquigglyName();
+            maxStrengths[i] = getMaxStrength(name);
+            automatonIndexes[i] = -1;
+
+            if (WildcardNameAutomaton.accepts(name) && wildcardNames.size() < WildcardNameAutomaton.MAX_NAMES) {
+                automatonIndexes[i] = wildcardNames.size();
+                wildcardNames.add((WildcardName) name);
+            }
+        }
+
+        if (wildcardNames.size() >= MIN_AUTOMATON_NAMES) {
+            this.automaton = new WildcardNameAutomaton(wildcardNames);
+        } else {
+            this.automaton = null;
+            Arrays.fill(automatonIndexes, -1);
+        }
+    }
+
+    // an expansion of the fallback index for the names of a bean class
+    private SquigglyNodeIndex(Map<String, SquigglyNode> expandedNodes, SquigglyNodeIndex fallback) {
+        this.exactNodes = expandedNodes;
+        this.patternNodes = new SquigglyNode[0];
+        this.maxStrengths = new int[0];
+        this.automatonIndexes = new int[0];
+        this.automaton = null;
+        this.anyShallowNode = null;
+        this.anyDeepNode = null;
+        this.fallback = fallback;
+    }
+
+    // wildcard and regex names always match with the same strength, the one their match method returns
+    private static int getMaxStrength(SquigglyName name) {
+        if (name instanceof WildcardName) {
+            return ((WildcardName) name).getMatchStrength();
+        }
+
+        if (name instanceof RegexName) {
+            return ((RegexName) name).getMatchStrength();
+        }
+
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Index a list of sibling nodes.
+     *
+     * @param nodes nodes
+     * @return index
+     */
+    public static SquigglyNodeIndex of(List<SquigglyNode> nodes) {
+        if (nodes.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<String, SquigglyNode> exactNodes = new HashMap<>();
+        ImmutableList.Builder<SquigglyNode> patternNodes = ImmutableList.builder();
+        SquigglyNode anyShallowNode = null;
+        SquigglyNode anyDeepNode = null;
+
+        for (SquigglyNode node : nodes) {
+            if (node.getSquigglyName() instanceof ExactName) {
+                exactNodes.put(node.getName(), node);
+            } else if (node.getSquigglyName() instanceof AnyShallowName) {
+                anyShallowNode = node;
+            } else if (node.getSquigglyName() instanceof AnyDeepName) {
+                anyDeepNode = node;
+            } else {
+                patternNodes.add(node);
+            }
+        }
+
+        return new SquigglyNodeIndex(ImmutableMap.copyOf(exactNodes), patternNodes.build(), anyShallowNode, anyDeepNode);
+    }
+
+    /**
+     * Says whether one of the nodes has exactly the given name.
+     *
+     * @param name property name
+     * @return true if there's an exact name, false if not
+     */
+    public boolean containsExact(String name) {
+        return (fallback == null) ? exactNodes.containsKey(name) : fallback.containsExact(name);
+    }
+
+    /**
+     * Says whether there are wildcard or regex nodes.  Without them, every name that isn't an exact name matches the
+     * same node.
+     *
+     * @return true if there are patterns, false if not
+     */
+    public boolean hasPatterns() {
+        return (fallback == null) ? patternNodes.length > 0 : fallback.hasPatterns();
+    }
+
+    /**
+     * Expand the wildcard and regex nodes into the property names of a bean class.  The expansion is built on first use
+     * and remembered for the class, so finding the best node of a property of the class is a single lookup.
+     *
+     * @param beanClass     bean class
+     * @param propertyNames names of the properties of the class
+     * @return expanded index, or this index if there are no wildcard or regex nodes to expand
+     */
+    public SquigglyNodeIndex expand(Class beanClass, Collection<String> propertyNames) {
+        if (patternNodes.length == 0) {
+            return this;
+        }
+
+        SquigglyNodeIndex expansion = expansions.getIfPresent(beanClass);
+
+        if (expansion != null) {
+            return expansion;
+        }
+
+        Map<String, SquigglyNode> expandedNodes = new HashMap<>();
+
+        for (String name : propertyNames) {
+            SquigglyNode match = findBest(name);
+            expandedNodes.put(name, (match == null) ? NO_MATCH : match);
+        }
+
+        expansion = new SquigglyNodeIndex(ImmutableMap.copyOf(expandedNodes), this);
+
+        SquigglyNodeIndex existing = expansions.asMap().putIfAbsent(beanClass, expansion);
+        return (existing == null) ? expansion : existing;
+    }
+
+    /**
+     * Find the node that best matches a name.
+     *
+     * @param name property name
+     * @return best node, or null if no node matches
+     */
+    public SquigglyNode findBest(String name) {
+        SquigglyNode match = exactNodes.get(name);
+
+        if (match != null) {
+            return (match == NO_MATCH) ? null : match;
+        }
+
+        if (fallback != null) {
+            return fallback.findBest(name);
+        }
+
+        int lastMatchStrength = -1;
+        long wildcardMatches = (automaton == null) ? 0 : automaton.match(name);
+
+        for (int i = 0; i < patternNodes.length; i++) {
+            int matchStrength;
+
+            if (automatonIndexes[i] >= 0) {
+                matchStrength = ((wildcardMatches & (1L << automatonIndexes[i])) != 0) ? maxStrengths[i] : -1;
+            } else if (maxStrengths[i] >= lastMatchStrength) {
+                matchStrength = patternNodes[i].match(name);
+            } else {
+                continue;
+            }
+
+            if (matchStrength >= 0 && matchStrength >= lastMatchStrength) {
+                match = patternNodes[i];
+                lastMatchStrength = matchStrength;
+            }
+        }
+
+        if (match != null) {
+            return match;
+        }
+
+        return (anyShallowNode != null) ? anyShallowNode : anyDeepNode;
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.name.SquigglyName;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/*
+    Hash conses the names and nodes of parsed filters, so identical subtrees of different filters are the same
+    instances.  Whatever is built from a node, like the index of its children and the match states of its children, is
+    then shared too.
+
+    Nodes are interned bottom up, so two nodes are identical when their names and flags are equal and their children are
+    the same instances.  Values are weakly referenced, so a subtree goes away with the last filter that uses it.  The top
+    level list of a filter is interned as well, since callers only hold the list and not the synthetic root it comes
+    from.
+ */
+@ThreadSafe
+class SquigglyNodeInterner {
+
+    private static final ConcurrentMap<NameKey, SquigglyName> NAMES = SquigglyNodeInterner.<NameKey, SquigglyName>newMap();
+    private static final ConcurrentMap<NodeKey, SquigglyNode> NODES = SquigglyNodeInterner.<NodeKey, SquigglyNode>newMap();
+    private static final ConcurrentMap<NodesKey, List<SquigglyNode>> NODE_LISTS = SquigglyNodeInterner.<NodesKey, List<SquigglyNode>>newMap();
+
+    private SquigglyNodeInterner() {
+    }
+
+    private static <K, V> ConcurrentMap<K, V> newMap() {
+        Cache<K, V> cache = CacheBuilder.newBuilder().weakValues().build();
+        return cache.asMap();
+    }
+
+    // the interned name of the given type, text and regex flags, created if needed
+    static SquigglyName name(Class<? extends SquigglyName> type, String text, Set<String> flags, Supplier<SquigglyName> factory) {
+        NameKey key = new NameKey(type, text, flags);
+        SquigglyName name = NAMES.get(key);
+
+        if (name == null) {
+            name = factory.get();
+            SquigglyName existing = NAMES.putIfAbsent(key, name);
+
+            if (existing != null) {
+                name = existing;
+            }
+        }
+
+        return name;
+    }
+
+    // the interned node, created if needed.  the name and children must already be interned.
+    static SquigglyNode node(SquigglyName name, List<SquigglyNode> children, boolean negated, boolean squiggly, boolean emptyNested) {
+        NodeKey key = new NodeKey(name, children, negated, squiggly, emptyNested);
+        SquigglyNode node = NODES.get(key);
+
+        if (node == null) {
+            node = new SquigglyNode(name, children, negated, squiggly, emptyNested);
+            SquigglyNode existing = NODES.putIfAbsent(key, node);
+
+            if (existing != null) {
+                node = existing;
+            }
+        }
+
+        return node;
+    }
+
+    // the interned list of the given nodes, in the same order.  the nodes must already be interned.
+    static List<SquigglyNode> nodes(List<SquigglyNode> nodes) {
+        if (nodes.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        NodesKey key = new NodesKey(nodes);
+        List<SquigglyNode> list = NODE_LISTS.get(key);
+
+        if (list == null) {
+            list = ImmutableList.copyOf(nodes);
+            List<SquigglyNode> existing = NODE_LISTS.putIfAbsent(key, list);
+
+            if (existing != null) {
+                list = existing;
+            }
+        }
+
+        return list;
+    }
+
+    private static class NameKey {
+        private final Class type;
+        private final String text;
+        private final Set<String> flags;
+
+        NameKey(Class type, String text, Set<String> flags) {
+            this.type = type;
+            this.text = text;
+            this.flags = (flags == null) ? ImmutableSet.<String>of() : ImmutableSet.copyOf(flags);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            NameKey nameKey = (NameKey) o;
+
+            if (type != nameKey.type) return false;
+            if (!text.equals(nameKey.text)) return false;
+            return flags.equals(nameKey.flags);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type.hashCode();
+            result = 31 * result + text.hashCode();
+            result = 31 * result + flags.hashCode();
+            return result;
+        }
+    }
+
+    // nodes are compared by identity, since they were interned first
+    private static class NodesKey {
+        private final SquigglyNode[] nodes;
+
+        NodesKey(List<SquigglyNode> nodes) {
+            this.nodes = nodes.toArray(new SquigglyNode[0]);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            NodesKey nodesKey = (NodesKey) o;
+
+            if (nodes.length != nodesKey.nodes.length) return false;
+
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] != nodesKey.nodes[i]) return false;
+            }
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 1;
+
+            for (SquigglyNode node : nodes) {
+                result = 31 * result + System.identityHashCode(node);
+            }
+
+            return result;
+        }
+    }
+
+    // children are compared by identity, since they were interned first
+    private static class NodeKey {
+        private final SquigglyName name;
+        private final List<SquigglyNode> children;
+        private final boolean negated;
+        private final boolean squiggly;
+        private final boolean emptyNested;
+
+        NodeKey(SquigglyName name, List<SquigglyNode> children, boolean negated, boolean squiggly, boolean emptyNested) {
+            this.name = name;
+            this.children = children;
+            this.negated = negated;
+            this.squiggly = squiggly;
+            this.emptyNested = emptyNested;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            NodeKey nodeKey = (NodeKey) o;
+
+            if (name != nodeKey.name) return false;
+            if (negated != nodeKey.negated) return false;
+            if (squiggly != nodeKey.squiggly) return false;
+            if (emptyNested != nodeKey.emptyNested) return false;
+            if (children.size() != nodeKey.children.size()) return false;
+
+            for (int i = 0; i < children.size(); i++) {
+                if (children.get(i) != nodeKey.children.get(i)) return false;
+            }
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(name);
+            result = 31 * result + (negated ? 1 : 0);
+            result = 31 * result + (squiggly ? 1 : 0);
+            result = 31 * result + (emptyNested ? 1 : 0);
+
+            for (SquigglyNode child : children) {
+                result = 31 * result + System.identityHashCode(child);
+            }
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.jacquant.squiggly.parser;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Thrown when a filter expression is invalid.
+ * <p>Regex patterns that don't compile are reported as parse errors too, at the position of the error in the filter.</p>
+ * <p>Invalid filters usually come from clients, so the exception doesn't fill in its stack trace: it would only ever
+ * show the parser, and filling it in costs more than parsing the filter.</p>
+ */
+public class SquigglyParseException extends ParseCancellationException {
+
+    private final int line;
+    private final int position;
+    private final String description;
+
+    /**
+     * Constructor.
+     *
+     * @param line        line of the error, starting at 1
+     * @param position    position of the error in the line, starting at 0
+     * @param description what's wrong
+     */
+    public SquigglyParseException(int line, int position, String description) {
+        super("line " + line + ":" + position + " " + description);
+        this.line = line;
+        this.position = position;
+        this.description = description;
+    }
+
+    /**
+     * Get the line of the error.
+     *
+     * @return line, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Get the position of the error in its line.
+     *
+     * @return position, starting at 0
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Get what's wrong, without the line and position.
+     *
+     * @return description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    // an invalid regex pattern, at the position of the error in the pattern when it's known
+    static SquigglyParseException invalidPattern(int line, int patternPosition, PatternSyntaxException e) {
+        int position = patternPosition + Math.max(e.getIndex(), 0);
+        return new SquigglyParseException(line, position, "invalid regex pattern '" + e.getPattern() + "': " + e.getDescription());
+    }
+
+    // a new exception with the same error, to throw again
+    SquigglyParseException copy() {
+        return new SquigglyParseException(line, position, description);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
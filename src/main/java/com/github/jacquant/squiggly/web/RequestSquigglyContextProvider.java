@@ -1,22 +1,31 @@
 package com.github.jacquant.squiggly.web;
 
+import com.github.jacquant.squiggly.config.SquigglyConfig;
+import com.github.jacquant.squiggly.context.LazySquigglyContext;
+import com.github.jacquant.squiggly.context.SquigglyContext;
 import com.github.jacquant.squiggly.name.AnyDeepName;
 import com.github.jacquant.squiggly.context.provider.AbstractSquigglyContextProvider;
+import com.github.jacquant.squiggly.parser.SquigglyNode;
 import com.github.jacquant.squiggly.parser.SquigglyParser;
+import com.github.jacquant.squiggly.view.PropertyView;
 import com.google.common.base.MoreObjects;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Custom context provider that gets the filter expression from the request.
+ * <p>The expression can refer to the {@link com.github.jacquant.squiggly.parser.SquigglyNamedFilters named filters}
+ * registered on the server, as in fields=@issueSummary.</p>
  */
 public class RequestSquigglyContextProvider extends AbstractSquigglyContextProvider {
 
     private String filterParam;
     private final String defaultFilter;
+    private final boolean customizingRequestNodes;
 
     public RequestSquigglyContextProvider() {
         this("fields", null);
@@ -31,6 +40,18 @@ public class RequestSquigglyContextProvider extends AbstractSquigglyContextProvi
         super(parser);
         this.filterParam = filterParam;
         this.defaultFilter = defaultFilter;
+        this.customizingRequestNodes = isOverridden(getClass(), RequestSquigglyContextProvider.class, "customizeNodes", List.class, HttpServletRequest.class, Class.class);
+    }
+
+    @Override
+    public SquigglyContext getContext(Class beanClass) {
+        HttpServletRequest request = getRequest();
+        return new LazySquigglyContext(beanClass, getParser(), getFilter(beanClass), isCustomizingNodes() ? nodes -> customizeNodes(nodes, request, beanClass) : null);
+    }
+
+    @Override
+    protected boolean isCustomizingNodes() {
+        return customizingRequestNodes || super.isCustomizingNodes();
     }
 
     @Override
@@ -42,6 +63,7 @@ public class RequestSquigglyContextProvider extends AbstractSquigglyContextProvi
 
         if (filter == null) {
             filter = MoreObjects.firstNonNull(getFilter(request), defaultFilter);
+            filter = admitFilter(filter);
             filter = customizeFilter(filter, request, beanClass);
             cache.put(beanClass, filter);
         }
@@ -156,6 +178,16 @@ public class RequestSquigglyContextProvider extends AbstractSquigglyContextProvi
         return SquigglyResponseHolder.getResponse();
     }
 
+    // replace a client filter over the parser's budget before it gets to the serializers, when configured to.  the
+    // replacement is customized like any other filter, so the provider's own restrictions still apply.
+    private String admitFilter(String filter) {
+        if (filter == null || !SquigglyConfig.isParserBudgetDowngrade()) {
+            return filter;
+        }
+
+        return getParser().admit(filter, MoreObjects.firstNonNull(defaultFilter, PropertyView.BASE_VIEW));
+    }
+
     protected String customizeFilter(String filter, HttpServletRequest request, Class beanClass) {
         return customizeFilter(filter, beanClass);
     }
@@ -163,4 +195,8 @@ public class RequestSquigglyContextProvider extends AbstractSquigglyContextProvi
     protected String customizeFilter(String filter, Class beanClass) {
         return filter;
     }
+
+    protected List<SquigglyNode> customizeNodes(List<SquigglyNode> nodes, HttpServletRequest request, Class beanClass) {
+        return customizeNodes(nodes, beanClass);
+    }
 }
@@ -0,0 +1,41 @@
+package com.github.jacquant.squiggly.bean;
+
+import com.github.jacquant.squiggly.model.Issue;
+import com.github.jacquant.squiggly.view.PropertyView;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeanInfoTest {
+
+    private final BeanInfo beanInfo = new BeanInfoIntrospector().introspect(Issue.class);
+
+    @Test
+    void testViewsMatchPropertyNames() {
+        for (String view : new String[]{PropertyView.BASE_VIEW, PropertyView.FULL_VIEW, "view1", "other", "unknown"}) {
+            for (String property : new String[]{"id", "issueSummary", "actions", "properties", "unknown"}) {
+                assertEquals(beanInfo.getPropertyNamesForView(view).contains(property), beanInfo.isInView(view, property), view + "." + property);
+            }
+        }
+    }
+
+    @Test
+    void testOrdinals() {
+        assertTrue(beanInfo.getPropertyOrdinal("issueSummary") >= 0);
+        assertEquals(-1, beanInfo.getPropertyOrdinal("unknown"));
+    }
+
+    @Test
+    void testViewUnion() {
+        assertTrue(beanInfo.isInViews(ImmutableSet.of("view1", "other"), "actions"));
+        assertTrue(beanInfo.isInViews(ImmutableSet.of("view1", "other"), "properties"));
+        assertFalse(beanInfo.isInViews(ImmutableSet.of("view1"), "actions"));
+
+        // a view the class doesn't have stands for the base view
+        assertTrue(beanInfo.isInViews(ImmutableSet.of("unknown"), "issueSummary"));
+        assertFalse(beanInfo.isInViews(ImmutableSet.of("unknown"), "actions"));
+    }
+}
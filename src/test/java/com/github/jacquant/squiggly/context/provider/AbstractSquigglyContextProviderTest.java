@@ -0,0 +1,39 @@
+package com.github.jacquant.squiggly.context.provider;
+
+import com.github.jacquant.squiggly.context.SquigglyContext;
+import com.github.jacquant.squiggly.model.Issue;
+import com.github.jacquant.squiggly.parser.SquigglyFilterComposer;
+import com.github.jacquant.squiggly.parser.SquigglyNode;
+import com.github.jacquant.squiggly.parser.SquigglyParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AbstractSquigglyContextProviderTest {
+
+    private final SquigglyParser parser = new SquigglyParser();
+
+    @Test
+    void testFilterIsNotParsedWithoutCustomizer() {
+        // an invalid expression shows the filter is returned without being parsed
+        SquigglyContext context = new SimpleSquigglyContextProvider(parser, "id{").getContext(Issue.class);
+        assertEquals("id{", context.getFilter());
+    }
+
+    @Test
+    void testCustomizedNodes() {
+        SquigglyContext context = new SimpleSquigglyContextProvider(parser, "id") {
+            @Override
+            protected List<SquigglyNode> customizeNodes(List<SquigglyNode> nodes, Class beanClass) {
+                return new SquigglyFilterComposer().wrap("items", nodes);
+            }
+        }.getContext(Issue.class);
+
+        assertSame(parser.parse("items{id}"), context.getNodes());
+        assertNull(context.getFilter());
+    }
+}
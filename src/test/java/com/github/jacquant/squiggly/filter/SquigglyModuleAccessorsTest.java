@@ -0,0 +1,100 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.github.jacquant.squiggly.Squiggly;
+import com.github.jacquant.squiggly.context.provider.SimpleSquigglyContextProvider;
+import com.github.jacquant.squiggly.parser.SquigglyParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the property filter tests with the @{@link SquigglyModule} writing simple properties through generated
+ * accessors.
+ */
+class SquigglyModuleAccessorsTest extends SquigglyPropertyFilterTest {
+
+    @Override
+    protected void configure(ObjectMapper objectMapper) {
+        objectMapper.registerModule(new SquigglyModule(true));
+    }
+
+    @Test
+    void testSimpleProperties() throws Exception {
+        SimpleBean bean = new SimpleBean(new SimpleBean(null));
+
+        for (String filter : new String[]{"**", "text,count,total,ratio,active,missing", "count,nested[active,missing]"}) {
+            ObjectMapper expected = Squiggly.init(new ObjectMapper(), filter).registerModule(new SquigglyModule(false));
+            ObjectMapper actual = Squiggly.init(new ObjectMapper(), filter).registerModule(new SquigglyModule(true));
+            assertEquals(expected.writeValueAsString(bean), actual.writeValueAsString(bean));
+        }
+
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "text,count,total,ratio,active,missing");
+        mapper.registerModule(new SquigglyModule(true));
+
+        // jackson orders the properties the way reflection lists the getters, so compare trees
+        assertEquals(mapper.readTree("{\"active\":true,\"count\":3,\"text\":\"a \\\"quoted\\\" text\",\"total\":12345678901,\"ratio\":0.5,\"missing\":null}"), mapper.readTree(mapper.writeValueAsString(bean)));
+    }
+
+    @Test
+    void testIncludedFieldHookIsCalled() throws Exception {
+        List<String> written = new ArrayList<>();
+        SimpleSquigglyContextProvider provider = new SimpleSquigglyContextProvider(new SquigglyParser(), "text,count,nested[active]") {
+            @Override
+            public void serializeAsIncludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+                written.add(writer.getName());
+                super.serializeAsIncludedField(pojo, jgen, provider, writer);
+            }
+        };
+
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), provider).registerModule(new SquigglyModule(true));
+        mapper.writeValueAsString(new SimpleBean(new SimpleBean(null)));
+
+        written.sort(null);
+        assertEquals(Arrays.asList("active", "count", "nested", "text"), written);
+    }
+
+    public static class SimpleBean {
+
+        private final SimpleBean nested;
+
+        public SimpleBean(SimpleBean nested) {
+            this.nested = nested;
+        }
+
+        public String getText() {
+            return "a \"quoted\" text";
+        }
+
+        public int getCount() {
+            return 3;
+        }
+
+        public Long getTotal() {
+            return 12345678901L;
+        }
+
+        public double getRatio() {
+            return 0.5;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public String getMissing() {
+            return null;
+        }
+
+        public SimpleBean getNested() {
+            return nested;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jacquant.squiggly.Squiggly;
+import com.github.jacquant.squiggly.model.User;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the property filter tests with the pruned bean serializers of the @{@link SquigglyModule}.
+ */
+class SquigglyModuleTest extends SquigglyPropertyFilterTest {
+
+    @Override
+    protected void configure(ObjectMapper objectMapper) {
+        objectMapper.registerModule(new SquigglyModule());
+    }
+
+    @Test
+    void testBeanSerializerIsReplaced() throws Exception {
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "lastName");
+        mapper.registerModule(new SquigglyModule());
+
+        assertTrue(mapper.getSerializerProviderInstance().findValueSerializer(User.class) instanceof SquigglyBeanSerializer);
+        assertEquals("{\"lastName\":\"Mormont\"}", mapper.writeValueAsString(new User("Jorah", "Mormont")));
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.github.jacquant.squiggly.bean.BeanInfoIntrospector;
+import com.github.jacquant.squiggly.context.provider.SquigglyContextProvider;
+
+/**
+ * Runs the property filter tests with the path of every field walked from the output contexts, as when
+ * filter.trackPathIncrementally is false.
+ */
+class SquigglyPropertyFilterLegacyPathTest extends SquigglyPropertyFilterTest {
+
+    @Override
+    protected SquigglyPropertyFilter createFilter(SquigglyContextProvider provider) {
+        return new SquigglyPropertyFilter(provider, new BeanInfoIntrospector(), false);
+    }
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.github.jacquant.squiggly.model.*;
 import com.github.jacquant.squiggly.config.SquigglyConfig;
 import com.github.jacquant.squiggly.context.provider.SimpleSquigglyContextProvider;
+import com.github.jacquant.squiggly.context.provider.SquigglyContextProvider;
 import com.github.jacquant.squiggly.parser.SquigglyParser;
 import com.github.jacquant.squiggly.util.SquigglyUtils;
 import com.google.common.base.Charsets;
@@ -53,12 +54,22 @@ class SquigglyPropertyFilterTest {
             objectMapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
             objectMapper.setFilterProvider(filterProvider);
             objectMapper.addMixIn(Object.class, SquigglyPropertyFilterMixin.class);
+            configure(objectMapper);
             init = true;
         }
 
         filterProvider.removeFilter(SquigglyPropertyFilter.FILTER_ID);
     }
 
+    // lets subclasses run the same tests against a differently configured mapper
+    protected void configure(ObjectMapper objectMapper) {
+    }
+
+    // lets subclasses run the same tests against a differently configured filter
+    protected SquigglyPropertyFilter createFilter(SquigglyContextProvider provider) {
+        return new SquigglyPropertyFilter(provider);
+    }
+
     private Issue buildIssue() {
         Map<String, Object> properties = new HashMap<>();
         properties.put("email", "motherofdragons@got.com");
@@ -415,7 +426,7 @@ class SquigglyPropertyFilterTest {
     private String filter(String filter) {
         SquigglyParser parser = new SquigglyParser();
         SimpleSquigglyContextProvider provider = new SimpleSquigglyContextProvider(parser, filter);
-        filterProvider.addFilter(SquigglyPropertyFilter.FILTER_ID, new SquigglyPropertyFilter(provider));
+        filterProvider.addFilter(SquigglyPropertyFilter.FILTER_ID, createFilter(provider));
         return filter;
     }
 
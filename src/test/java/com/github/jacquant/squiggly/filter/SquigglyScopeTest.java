@@ -0,0 +1,166 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.github.jacquant.squiggly.Squiggly;
+import com.github.jacquant.squiggly.context.provider.SimpleSquigglyContextProvider;
+import com.github.jacquant.squiggly.model.User;
+import com.github.jacquant.squiggly.parser.SquigglyParser;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SquigglyScopeTest {
+
+    @Test
+    void testIncludes() {
+        assertTrue(SquigglyScope.packages("com.github.jacquant.squiggly").includes(User.class));
+        assertTrue(SquigglyScope.packages("com.github.jacquant.squiggly.model").includes(User.class));
+        assertFalse(SquigglyScope.packages("com.github.jacquant.squiggly.mod").includes(User.class));
+        assertTrue(SquigglyScope.types(Map.class).includes(Collections.emptyMap().getClass()));
+        assertFalse(SquigglyScope.types(Map.class).includes(User.class));
+        assertTrue(SquigglyScope.annotations(Filtered.class).includes(Page.class));
+        assertFalse(SquigglyScope.annotations(Filtered.class).includes(User.class));
+        assertTrue(SquigglyScope.types(Map.class).or(SquigglyScope.annotations(Filtered.class)).includes(Page.class));
+    }
+
+    @Test
+    void testOutOfScopeTypesAreNotFiltered() throws Exception {
+        ObjectMapper mapper = init("user{lastName}", SquigglyScope.packages("com.github.jacquant.squiggly.model"));
+
+        assertEquals("{\"name\":\"users\",\"user\":{\"lastName\":\"Mormont\"}}", mapper.writeValueAsString(new Page("users", new User("Jorah", "Mormont"))));
+        assertEquals("{\"name\":\"users\",\"user\":null}", mapper.writeValueAsString(new Page("users", null)));
+    }
+
+    @Test
+    void testNestedInScopeTypesFollowThePath() throws Exception {
+        Root root = new Root(new Wrapper(new Inner(1, "one")), new Wrapper(new Inner(2, "two")));
+        String expected = "{\"a\":{\"inner\":{\"id\":1}},\"b\":{\"inner\":{\"name\":\"two\"}}}";
+
+        ObjectMapper mapper = init("a{inner{id}},b{inner{name}}", SquigglyScope.types(Root.class, Inner.class));
+        assertEquals(expected, mapper.writeValueAsString(root));
+        mapper.registerModule(new SquigglyModule());
+        assertEquals(expected, mapper.writeValueAsString(root));
+
+        mapper = init("a{inner{id}},b{inner{name}}", SquigglyScope.types(Inner.class));
+        assertEquals(expected, mapper.writeValueAsString(root));
+        mapper.registerModule(new SquigglyModule());
+        assertEquals(expected, mapper.writeValueAsString(root));
+    }
+
+    @Test
+    void testInScopeTypesUnderOutOfScopeRoots() throws Exception {
+        List<Wrapper> wrappers = Arrays.asList(new Wrapper(new Inner(1, "one")), new Wrapper(new Inner(2, "two")));
+        String expected = "[{\"inner\":{\"id\":1}},{\"inner\":{\"id\":2}}]";
+
+        ObjectMapper mapper = init("inner{id}", SquigglyScope.types(Inner.class));
+        assertEquals(expected, mapper.writeValueAsString(wrappers));
+        mapper.registerModule(new SquigglyModule());
+        assertEquals(expected, mapper.writeValueAsString(wrappers));
+    }
+
+    @Test
+    void testAnnotationScope() throws Exception {
+        ObjectMapper mapper = init("name", SquigglyScope.annotations(Filtered.class));
+        assertEquals("{\"name\":\"users\"}", mapper.writeValueAsString(new Page("users", new User("Jorah", "Mormont"))));
+    }
+
+    @Test
+    void testModuleKeepsStockSerializers() throws Exception {
+        ObjectMapper mapper = init("user{lastName}", SquigglyScope.types(User.class));
+        mapper.registerModule(new SquigglyModule());
+
+        assertSame(BeanSerializer.class, mapper.getSerializerProviderInstance().findValueSerializer(Page.class).getClass());
+        assertTrue(mapper.getSerializerProviderInstance().findValueSerializer(User.class) instanceof SquigglyBeanSerializer);
+        assertEquals("{\"name\":\"users\",\"user\":{\"lastName\":\"Mormont\"}}", mapper.writeValueAsString(new Page("users", new User("Jorah", "Mormont"))));
+    }
+
+    private ObjectMapper init(String filter, SquigglyScope scope) {
+        return Squiggly.init(new ObjectMapper(), new SimpleSquigglyContextProvider(new SquigglyParser(), filter), scope);
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Filtered {
+    }
+
+    @Filtered
+    public static class Page {
+
+        private final String name;
+        private final User user;
+
+        public Page(String name, User user) {
+            this.name = name;
+            this.user = user;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public User getUser() {
+            return user;
+        }
+    }
+
+    public static class Root {
+
+        private final Wrapper a;
+        private final Wrapper b;
+
+        public Root(Wrapper a, Wrapper b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        public Wrapper getA() {
+            return a;
+        }
+
+        public Wrapper getB() {
+            return b;
+        }
+    }
+
+    public static class Wrapper {
+
+        private final Inner inner;
+
+        public Wrapper(Inner inner) {
+            this.inner = inner;
+        }
+
+        public Inner getInner() {
+            return inner;
+        }
+    }
+
+    public static class Inner {
+
+        private final int id;
+        private final String name;
+
+        public Inner(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
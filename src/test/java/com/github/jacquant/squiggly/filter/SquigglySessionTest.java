@@ -0,0 +1,134 @@
+package com.github.jacquant.squiggly.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jacquant.squiggly.Squiggly;
+import com.github.jacquant.squiggly.context.provider.AbstractSquigglyContextProvider;
+import com.github.jacquant.squiggly.match.SquigglyMatchState;
+import com.github.jacquant.squiggly.model.User;
+import com.github.jacquant.squiggly.util.SquigglyUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SquigglySessionTest {
+
+    private final List<User> users = Arrays.asList(new User("Jorah", "Mormont"), new User("Daario", "Naharis"));
+
+    @Test
+    void testProviderIsResolvedOncePerCall() throws Exception {
+        CountingContextProvider provider = new CountingContextProvider("lastName", true);
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), provider);
+
+        assertEquals("[{\"lastName\":\"Mormont\"},{\"lastName\":\"Naharis\"}]", mapper.writeValueAsString(users));
+        assertEquals(1, provider.enabledCount);
+        assertEquals(1, provider.filterCount);
+
+        mapper.writeValueAsString(users);
+        assertEquals(2, provider.enabledCount);
+        assertEquals(2, provider.filterCount);
+    }
+
+    @Test
+    void testDisabledIsResolvedOncePerCall() throws Exception {
+        CountingContextProvider provider = new CountingContextProvider("lastName", false);
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), provider);
+
+        assertEquals("[{\"firstName\":\"Jorah\",\"lastName\":\"Mormont\",\"entityType\":\"User\"},{\"firstName\":\"Daario\",\"lastName\":\"Naharis\",\"entityType\":\"User\"}]", mapper.writeValueAsString(users));
+        assertEquals(1, provider.enabledCount);
+        assertEquals(0, provider.filterCount);
+    }
+
+    @Test
+    void testModuleUsesSession() throws Exception {
+        CountingContextProvider provider = new CountingContextProvider("lastName", true);
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), provider).registerModule(new SquigglyModule());
+
+        assertEquals("[{\"lastName\":\"Mormont\"},{\"lastName\":\"Naharis\"}]", mapper.writeValueAsString(users));
+        assertEquals(1, provider.enabledCount);
+        assertEquals(1, provider.filterCount);
+    }
+
+    @Test
+    void testNestedBeansBelowAnyDeepStayInSession() throws Exception {
+        List<Page> pages = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            pages.add(new Page(new User("Jorah", "Mormont")));
+        }
+
+        CountingContextProvider provider = new CountingContextProvider("**", true);
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), provider);
+        mapper.writeValueAsString(pages);
+        assertEquals(1, provider.filterCount);
+
+        provider = new CountingContextProvider("**", true);
+        mapper = Squiggly.init(new ObjectMapper(), provider).registerModule(new SquigglyModule());
+        mapper.writeValueAsString(pages);
+        assertEquals(1, provider.filterCount);
+    }
+
+    @Test
+    void testNothingIsLookedUpBelowAnyDeep() throws Exception {
+        List<Page> pages = Arrays.asList(new Page(new User("Jorah", "Mormont")), new Page(new User("Daenerys", "Targaryen")));
+        CountingContextProvider provider = new CountingContextProvider("**", true);
+        SquigglyPropertyFilter filter = new SquigglyPropertyFilter(provider);
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), filter);
+        assertEquals(SquigglyUtils.stringify(new ObjectMapper(), pages), mapper.writeValueAsString(pages));
+
+        SquigglyMatchState includeAll = filter.getMatcher(provider.getContext(Page.class)).getIncludeAllState();
+        assertNull(includeAll.getIncludeMask(Page.class));
+        assertNull(includeAll.getIncludeMask(User.class));
+
+        provider = new CountingContextProvider("**", true);
+        filter = new SquigglyPropertyFilter(provider);
+        mapper = Squiggly.init(new ObjectMapper(), filter).registerModule(new SquigglyModule());
+        assertEquals(SquigglyUtils.stringify(new ObjectMapper(), pages), mapper.writeValueAsString(pages));
+
+        includeAll = filter.getMatcher(provider.getContext(Page.class)).getIncludeAllState();
+        assertNull(includeAll.getIncludeMask(Page.class));
+        assertNull(includeAll.getIncludeMask(User.class));
+    }
+
+    public static class Page {
+
+        private final User user;
+
+        public Page(User user) {
+            this.user = user;
+        }
+
+        public User getUser() {
+            return user;
+        }
+    }
+
+    private static class CountingContextProvider extends AbstractSquigglyContextProvider {
+
+        private final String filter;
+        private final boolean enabled;
+        private int enabledCount;
+        private int filterCount;
+
+        CountingContextProvider(String filter, boolean enabled) {
+            this.filter = filter;
+            this.enabled = enabled;
+        }
+
+        @Override
+        protected String getFilter(Class beanClass) {
+            filterCount++;
+            return filter;
+        }
+
+        @Override
+        public boolean isFilteringEnabled() {
+            enabledCount++;
+            return enabled;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.jacquant.squiggly.match;
+
+import com.github.jacquant.squiggly.model.Issue;
+import com.github.jacquant.squiggly.model.User;
+import com.github.jacquant.squiggly.parser.SquigglyNode;
+import com.github.jacquant.squiggly.parser.SquigglyParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SquigglyDecisionCacheTest {
+
+    private final List<SquigglyNode> nodes = new SquigglyParser().parse("id");
+
+    @Test
+    void testGetAndPut() {
+        SquigglyDecisionCache cache = new SquigglyDecisionCache(16);
+        SquigglyMatchState root = new SquigglyMatcher(nodes).getRootState();
+
+        assertNull(cache.get(root, Issue.class));
+        cache.put(root, Issue.class, "a");
+        assertEquals("a", cache.get(root, Issue.class));
+        cache.put(root, Issue.class, "b");
+        assertEquals("b", cache.get(root, Issue.class));
+    }
+
+    @Test
+    void testDisabled() {
+        SquigglyDecisionCache cache = new SquigglyDecisionCache(0);
+        SquigglyMatchState root = new SquigglyMatcher(nodes).getRootState();
+
+        cache.put(root, Issue.class, "a");
+        assertNull(cache.get(root, Issue.class));
+    }
+
+    @Test
+    void testKeys() {
+        SquigglyDecisionCache cache = new SquigglyDecisionCache(16);
+        SquigglyMatcher matcher = new SquigglyMatcher(nodes);
+        SquigglyMatcher otherMatcher = new SquigglyMatcher(nodes);
+        SquigglyMatchState root = matcher.getRootState();
+
+        cache.put(root, Issue.class, "a");
+        assertEquals(root.getId(), otherMatcher.getRootState().getId());
+        assertNull(cache.get(otherMatcher.getRootState(), Issue.class));
+        assertNull(cache.get(matcher.getIncludeAllState(), Issue.class));
+        assertNull(cache.get(root, User.class));
+        assertEquals("a", cache.get(root, Issue.class));
+    }
+
+    @Test
+    void testEvictionKeepsSize() {
+        SquigglyDecisionCache cache = new SquigglyDecisionCache(64);
+        SquigglyMatchState[] states = new SquigglyMatchState[10000];
+
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new SquigglyMatcher(nodes).getRootState();
+            cache.put(states[i], Issue.class, i);
+        }
+
+        int found = 0;
+
+        for (int i = 0; i < states.length; i++) {
+            Object value = cache.get(states[i], Issue.class);
+
+            if (value != null) {
+                assertEquals(i, value);
+                found++;
+            }
+        }
+
+        assertTrue(found > 0 && found <= 64, String.valueOf(found));
+
+        Map<String, Object> metrics = new HashMap<>();
+        cache.getMetricsSource("cache.").applyMetrics(metrics);
+        assertEquals(64, metrics.get("cache.capacity"));
+        assertTrue((Long) metrics.get("cache.evictionCount") > 0);
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception {
+        final SquigglyDecisionCache cache = new SquigglyDecisionCache(256);
+        final SquigglyMatchState[] states = new SquigglyMatchState[1000];
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new SquigglyMatcher(nodes).getRootState();
+        }
+
+        try {
+            Future<?>[] futures = new Future<?>[8];
+
+            for (int t = 0; t < futures.length; t++) {
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 100000; i++) {
+                        int key = i % states.length;
+                        Object value = cache.get(states[key], Issue.class);
+
+                        if (value == null) {
+                            cache.put(states[key], Issue.class, key);
+                        } else {
+                            assertEquals(key, value);
+                        }
+                    }
+                });
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.github.jacquant.squiggly.match;
+
+import com.github.jacquant.squiggly.model.Inner;
+import com.github.jacquant.squiggly.model.Issue;
+import com.github.jacquant.squiggly.model.IssueAction;
+import com.github.jacquant.squiggly.model.Item;
+import com.github.jacquant.squiggly.model.Outer;
+import com.github.jacquant.squiggly.model.User;
+import com.github.jacquant.squiggly.parser.SquigglyParser;
+import org.junit.jupiter.api.Test;
+
+import java.beans.Introspector;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SquigglyMatcherTest {
+
+    @Test
+    void testNested() {
+        SquigglyMatcher matcher = compile("id,assignee[firstName]");
+        SquigglyMatchState root = matcher.getRootState();
+
+        assertTrue(matcher.matches(root, "id"));
+        assertFalse(matcher.matches(root, "reporter"));
+
+        SquigglyMatchState assignee = matcher.next(root, "assignee");
+        assertTrue(matcher.matches(assignee, "firstName"));
+        assertFalse(matcher.matches(assignee, "lastName"));
+    }
+
+    @Test
+    void testStatesAreShared() {
+        SquigglyMatcher matcher = compile("(reporter,assignee)[firstName]");
+        SquigglyMatchState root = matcher.getRootState();
+
+        assertSame(root, matcher.getRootState());
+        assertSame(matcher.next(root, "reporter", Issue.class), matcher.next(root, "reporter", Issue.class));
+    }
+
+    @Test
+    void testAnyDeep() {
+        SquigglyMatcher matcher = compile("id,reporter[**]");
+        SquigglyMatchState reporter = matcher.next(matcher.getRootState(), "reporter");
+
+        assertTrue(matcher.matches(reporter, "anything"));
+        assertSame(matcher.getIncludeAllState(), matcher.next(reporter, "anything"));
+        assertTrue(matcher.next(reporter, "anything").isIncludeAll());
+    }
+
+    @Test
+    void testExcludeAll() {
+        SquigglyMatcher matcher = compile("id,assignee{}");
+        SquigglyMatchState root = matcher.getRootState();
+        SquigglyMatchState assignee = matcher.next(root, "assignee", Issue.class);
+
+        assertFalse(root.isExcludeAll());
+        assertTrue(assignee.isExcludeAll());
+        assertFalse(matcher.matches(assignee, "firstName", User.class));
+        assertFalse(matcher.matches(assignee, "anything", Map.class));
+        assertFalse(matcher.getIncludeAllState().isExcludeAll());
+    }
+
+    @Test
+    void testRecursionFolds() {
+        for (String filter : Arrays.asList("**", "*", "base", "id,items", "items[id,items]", "items[-name,**]", "items{items}")) {
+            SquigglyMatcher matcher = compile(filter);
+            SquigglyMatchState state = matcher.getRootState();
+            SquigglyMatchState previous = null;
+
+            for (int depth = 0; depth < 20 && state != previous; depth++) {
+                previous = state;
+                state = matcher.next(state, "items", Item.class);
+            }
+
+            assertSame(previous, state, filter);
+            assertTrue(matcher.getStateCount() <= 4, filter);
+        }
+    }
+
+    @Test
+    void testNegated() {
+        SquigglyMatcher matcher = compile("**,reporter[-firstName]");
+        SquigglyMatchState reporter = matcher.next(matcher.getRootState(), "reporter", Issue.class);
+
+        assertNull(matcher.next(reporter, "firstName", User.class));
+        assertTrue(matcher.matches(reporter, "lastName", User.class));
+        assertTrue(matcher.next(matcher.getRootState(), "assignee", Issue.class).isIncludeAll());
+    }
+
+    @Test
+    void testWildcardAndRegex() {
+        SquigglyMatcher matcher = compile("issue*,~as.*ee~");
+        SquigglyMatchState root = matcher.getRootState();
+
+        assertTrue(matcher.matches(root, "issueSummary"));
+        assertTrue(matcher.matches(root, "assignee"));
+        assertFalse(matcher.matches(root, "reporter"));
+    }
+
+    @Test
+    void testWildcardAndRegexOfBeanClass() {
+        SquigglyMatcher matcher = compile("iss*,~rep.*~");
+        SquigglyMatchState root = matcher.getRootState();
+
+        assertTrue(matcher.matches(root, "issueSummary", Issue.class));
+        assertTrue(matcher.matches(root, "reporter", Issue.class));
+        assertFalse(matcher.matches(root, "assignee", Issue.class));
+
+        // names the class doesn't declare, like the ones of an any getter, are still matched
+        assertTrue(matcher.matches(root, "issueExtra", Issue.class));
+        assertFalse(matcher.matches(root, "extra", Issue.class));
+    }
+
+    @Test
+    void testViews() {
+        SquigglyMatcher matcher = compile("full");
+        SquigglyMatchState root = matcher.getRootState();
+
+        assertTrue(matcher.matches(root, "actions", Issue.class));
+        assertTrue(matcher.matches(root, "issueSummary", Issue.class));
+
+        // nested objects only get the base view
+        SquigglyMatchState reporter = matcher.next(root, "reporter", Issue.class);
+        assertTrue(matcher.matches(reporter, "firstName", User.class));
+        assertFalse(matcher.matches(reporter, "entityType", User.class));
+
+        // without a bean class, the base view matches everything like a map
+        SquigglyMatcher baseMatcher = compile("base");
+        assertTrue(baseMatcher.matches(baseMatcher.getRootState(), "anything"));
+        assertTrue(baseMatcher.matches(baseMatcher.getRootState(), "anything", Map.class));
+    }
+
+    @Test
+    void testIncludeMask() {
+        SquigglyMatcher matcher = compile("id,reporter[lastName]");
+        SquigglyMatchState root = matcher.getRootState();
+        SquigglyIncludeMask mask = matcher.includeMask(root, Issue.class, Arrays.asList("id", "issueSummary", "reporter"));
+
+        assertSame(mask, root.getIncludeMask(Issue.class));
+        assertSame(mask, matcher.includeMask(root, Issue.class, Collections.<String>emptyList()));
+        assertEquals(3, mask.size());
+        assertEquals(-1, mask.ordinal("assignee"));
+        assertTrue(mask.isIncluded(mask.ordinal("id")));
+        assertFalse(mask.isIncluded(mask.ordinal("issueSummary")));
+        assertNull(mask.getState(mask.ordinal("issueSummary")));
+        assertSame(matcher.next(root, "reporter", Issue.class), mask.getState(mask.ordinal("reporter")));
+    }
+
+    @Test
+    void testIncludeMaskInlineCache() {
+        SquigglyMatcher matcher = compile("id");
+        SquigglyMatchState root = matcher.getRootState();
+        Class[] classes = {Issue.class, User.class, Item.class, Outer.class, Inner.class, IssueAction.class};
+
+        for (int i = 0; i < classes.length; i++) {
+            SquigglyIncludeMask mask = matcher.includeMask(root, classes[i], Collections.singletonList("id"));
+
+            assertSame(mask, root.getIncludeMask(classes[i]));
+            assertEquals(i >= 4, root.isMegamorphic());
+        }
+
+        for (Class beanClass : classes) {
+            assertSame(beanClass, root.getIncludeMask(beanClass).getBeanClass());
+        }
+
+        assertNull(root.getIncludeMask(Map.class));
+    }
+
+    @Test
+    void testStatesDoNotKeepClassesAlive() throws Exception {
+        SquigglyMatcher matcher = compile("id,inner*");
+        SquigglyMatchState root = matcher.getRootState();
+        WeakReference<ClassLoader> loader = loadAndMatch(matcher, root);
+
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(loader.get());
+        assertTrue(matcher.matches(root, "innerText", Inner.class));
+    }
+
+    // build an include mask and a node index expansion for a class of a throwaway class loader
+    private WeakReference<ClassLoader> loadAndMatch(SquigglyMatcher matcher, SquigglyMatchState root) throws Exception {
+        URL classes = Inner.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[]{classes}, null);
+        Class beanClass = loader.loadClass(Inner.class.getName());
+
+        assertNotSame(Inner.class, beanClass);
+        assertTrue(matcher.includeMask(root, beanClass, Collections.singletonList("innerText")).isIncluded(0));
+        assertSame(beanClass, root.getIncludeMask(beanClass).getBeanClass());
+
+        // the bean info cache of the jdk holds on to the class until it's flushed
+        Introspector.flushFromCaches(beanClass);
+        loader.close();
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    @Test
+    void testUndeclaredNamesAreNotRemembered() {
+        SquigglyMatcher matcher = compile("id,*");
+        SquigglyMatchState root = matcher.getRootState();
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(matcher.matches(root, "key" + i, Issue.class));
+        }
+
+        assertTrue(matcher.matches(root, "id", Issue.class));
+        assertTrue(matcher.matches(root, "reporter", Issue.class));
+        assertEquals(2, root.getTransitionCount());
+    }
+
+    @Test
+    void testMapKeys() {
+        SquigglyMatcher matcher = compile("properties[color,-size,*]");
+        SquigglyMatchState properties = matcher.next(matcher.getRootState(), "properties", Issue.class);
+
+        assertTrue(matcher.matches(properties, "color", Map.class));
+        assertNull(matcher.next(properties, "size", Map.class));
+        assertSame(matcher.next(properties, "color", Map.class), matcher.next(properties, "color", Map.class));
+
+        // every other key shares one transition
+        assertSame(matcher.next(properties, "weight", Map.class), matcher.next(properties, "height", Map.class));
+        assertNotSame(matcher.next(properties, "color", Map.class), matcher.next(properties, "weight", Map.class));
+    }
+
+    @Test
+    void testMapKeysWithPatterns() {
+        SquigglyMatcher matcher = compile("properties[col*,~s.*e~]");
+        SquigglyMatchState properties = matcher.next(matcher.getRootState(), "properties", Issue.class);
+
+        assertTrue(matcher.matches(properties, "color", Map.class));
+        assertTrue(matcher.matches(properties, "size", Map.class));
+        assertFalse(matcher.matches(properties, "weight", Map.class));
+    }
+
+    @Test
+    void testMapKeysWithBaseView() {
+        SquigglyMatcher matcher = compile("properties");
+        SquigglyMatchState properties = matcher.next(matcher.getRootState(), "properties", Issue.class);
+
+        assertTrue(matcher.matches(properties, "color", Map.class));
+        assertSame(matcher.next(properties, "color", Map.class), matcher.next(properties, "size", Map.class));
+    }
+
+    private SquigglyMatcher compile(String filter) {
+        return new SquigglyMatcher(new SquigglyParser().parse(filter));
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.jacquant.squiggly.name;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinearRegexMatcherTest {
+
+    private static final String[] PATTERNS = {
+            "", "a", "abc", "a|b", "a*", "a+b", "a?b", "a{2}", "a{2,}", "a{1,3}b", "a*?b", "(ab)+", "(?:a|bc)*d",
+            "(a|)b", "()", ".", ".*", "a.c", "[abc]", "[^abc]", "[a-c]+", "[-a]", "[a-]", "[a^]", "[\\]\\-]",
+            "\\d+", "\\D", "\\w*", "\\W", "\\s", "\\S+", "[\\d_]+", "[^\\w]", "[\\W\\d]", "\\.", "\\*\\+", "\\x41",
+            "\\u0042", "\\t", "^a$", "a$", "a$\\n", "a$\\r\\n", "^", "$", "a|^b", "(a*)*", "(a|a)*b", "issue.*",
+            "assignee|reporter", "[A-Z][a-z]*Name", "a}", "a]"
+    };
+
+    private static final String[] NAMES = {
+            "", "a", "b", "ab", "abc", "aa", "aaa", "aab", "abab", "ba", "d", "bcd", "A", "AB", "Ab", "ABC", "1", "12",
+            "_", " ", "\t", "\n", "a\n", "a\r\n", "a\r", "\r\n", "a ", ".", "*+", "-", "]", "^", "}", "a}",
+            "issueSummary", "reporter", "firstName", "X😀", "😀"
+    };
+
+    @Test
+    void testSameAsJava() {
+        for (String pattern : PATTERNS) {
+            assertSameAsJava(pattern, false);
+            assertSameAsJava(pattern, true);
+        }
+    }
+
+    @Test
+    void testSameAsJavaForRandomPatterns() {
+        Random random = new Random(23);
+        char[] alphabet = "abAB.*+?|()[]^-{}12,$\\dws".toCharArray();
+        int supported = 0;
+
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder pattern = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+
+            for (int j = 0; j < length; j++) {
+                pattern.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+
+            if (assertSameAsJava(pattern.toString(), random.nextBoolean())) {
+                supported++;
+            }
+        }
+
+        assertTrue(supported > 2000, "only " + supported + " patterns were supported");
+    }
+
+    @Test
+    void testUnsupported() {
+        String[] patterns = {"(a)\\1", "(?=a)", "(?i)a", "a*+", "\\bword", "\\p{L}", "[a[b]]", "[a&&b]", "a{1001}",
+                "(a{1000}){1000}", "a**", "*a", "a{2,1}", "(a", "a)", "[a", "\\"};
+
+        for (String pattern : patterns) {
+            assertThrows(PatternSyntaxException.class, () -> new LinearRegexMatcher(pattern, false), pattern);
+        }
+    }
+
+    @Test
+    void testAdversarialPatternsAreLinear() {
+        StringBuilder name = new StringBuilder();
+
+        for (int i = 0; i < 10000; i++) {
+            name.append('a');
+        }
+
+        String[] patterns = {"(a|a)*b", "(a+)+b", "(a*)*b", "a*a*a*a*a*a*a*a*b", ".*.*.*.*.*.*=", "(a|aa)*c"};
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (String pattern : patterns) {
+                assertFalse(new LinearRegexMatcher(pattern, false).matches(name.toString()), pattern);
+            }
+        });
+    }
+
+    @Test
+    void testRegexNameEngine() {
+        RegexName name = new RegexName("issue.*", null, RegexName.Engine.LINEAR);
+
+        assertEquals(9, name.match("issueSummary"));
+        assertEquals(-1, name.match("summary"));
+        assertEquals(9, new RegexName("ISSUE.*", Collections.singleton("i"), RegexName.Engine.LINEAR).match("issueSummary"));
+    }
+
+    // returns whether the linear matcher supports the pattern
+    private static boolean assertSameAsJava(String pattern, boolean caseInsensitive) {
+        LinearRegexMatcher matcher;
+
+        try {
+            matcher = new LinearRegexMatcher(pattern, caseInsensitive);
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+
+        Pattern javaPattern = Pattern.compile(pattern, caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+
+        // twice, to go through the remembered transitions
+        for (int i = 0; i < 2; i++) {
+            for (String name : NAMES) {
+                assertEquals(javaPattern.matcher(name).matches(), matcher.matches(name), "/" + pattern + "/ " + (caseInsensitive ? "i " : "") + name);
+            }
+        }
+
+        return true;
+    }
+}
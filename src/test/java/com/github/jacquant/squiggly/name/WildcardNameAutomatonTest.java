@@ -0,0 +1,75 @@
+package com.github.jacquant.squiggly.name;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WildcardNameAutomatonTest {
+
+    private static final List<String> NAMES = Arrays.asList("", "a", "ab", "aab", "abc", "axbyc", "economy", "eco",
+            "startTime", "Time", "netWeightKg", "issueSummary", "issSum", "a😀b", "a\nb", "line Time",
+            "user-id", "x__y", "x_a_y", "abab", "ababab", "abxab", "a12b", "x", "yx", "abcd", "zabc", "field42");
+
+    @Test
+    void testSameAsWildcardNames() {
+        assertSameAsWildcardNames(Arrays.asList("eco*", "*Time", "*Weight*", "iss*Sum*", "a?b", "*a?", "?", "*",
+                "a*b*c", "*-id", "x_*_y", "ab*ab", "*ab*ab*", "a??b*", "*?x", "?*?", "abc", ""));
+    }
+
+    @Test
+    void testSpansWords() {
+        List<String> globs = new ArrayList<>();
+
+        for (int i = 0; i < WildcardNameAutomaton.MAX_NAMES; i++) {
+            globs.add((i % 3 == 0) ? "field" + i : (i % 3 == 1) ? "*" + i : "?i*d" + i + "*");
+        }
+
+        assertSameAsWildcardNames(globs);
+    }
+
+    @Test
+    void testAccepts() {
+        assertTrue(WildcardNameAutomaton.accepts(new WildcardName("a?b*")));
+        assertFalse(WildcardNameAutomaton.accepts(new WildcardName("a.b*")));
+        assertFalse(WildcardNameAutomaton.accepts(new ExactName("ab")));
+        assertFalse(WildcardNameAutomaton.accepts(new RegexName("a.*", Collections.<String>emptySet())));
+    }
+
+    @Test
+    void testRejectsTooManyNames() {
+        List<WildcardName> names = Collections.nCopies(WildcardNameAutomaton.MAX_NAMES + 1, new WildcardName("a*"));
+
+        assertThrows(IllegalArgumentException.class, () -> new WildcardNameAutomaton(names));
+        assertThrows(IllegalArgumentException.class, () -> new WildcardNameAutomaton(Collections.singletonList(new WildcardName("a.b*"))));
+    }
+
+    private static void assertSameAsWildcardNames(List<String> globs) {
+        List<WildcardName> wildcardNames = new ArrayList<>();
+
+        for (String glob : globs) {
+            wildcardNames.add(new WildcardName(glob));
+        }
+
+        WildcardNameAutomaton automaton = new WildcardNameAutomaton(wildcardNames);
+
+        for (String name : NAMES) {
+            long expected = 0;
+
+            for (int k = 0; k < wildcardNames.size(); k++) {
+                if (wildcardNames.get(k).match(name) >= 0) {
+                    expected |= 1L << k;
+                }
+            }
+
+            assertEquals(expected, automaton.match(name), name);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.jacquant.squiggly.name;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WildcardNameTest {
+
+    private static final List<String> GLOBS = Arrays.asList("eco*", "*Time", "*Weight*", "iss*Sum*", "a?b", "*a?", "?",
+            "*", "a*b*c", "*-id", "x_*_y", "a$*", "a.b*", "issue*", "ab*ab", "*ab*ab*", "a*a", "a??b*", "*?x", "?*?",
+            "abc", "");
+
+    private static final List<String> NAMES = Arrays.asList("", "a", "ab", "aab", "abc", "axbyc", "economy", "eco",
+            "startTime", "Time", "time", "netWeightKg", "Weight", "issueSummary", "issSum", "issue", "a\uD83D\uDE00b",
+            "a\nb", "eco\n", "line\u2028Time", "user-id", "x__y", "x_a_y", "a$", "a", "axb", "a.bc", "aba", "abab",
+            "ababab", "abxab", "aa", "a1b", "a12b", "a123b", "x", "yx", "\n", "abcd", "zabc");
+
+    @Test
+    void testSameAsRegex() {
+        for (String glob : GLOBS) {
+            WildcardName wildcardName = new WildcardName(glob);
+            Pattern pattern = regex(glob);
+
+            for (String name : NAMES) {
+                int expected = pattern.matcher(name).matches() ? StringUtils.remove(glob, '*').length() + 2 : -1;
+                assertEquals(expected, wildcardName.match(name), glob + " ~ " + name);
+            }
+        }
+    }
+
+    @Test
+    void testRegexOnlyForSpecialCharacters() {
+        assertNotNull(GlobMatcher.compile("eco*"));
+        assertNotNull(GlobMatcher.compile("a?b*c"));
+        assertNull(GlobMatcher.compile("a$*"));
+        assertNull(GlobMatcher.compile("a.b*"));
+    }
+
+    // the regex wildcard names used to compile to
+    private static Pattern regex(String glob) {
+        return Pattern.compile("^" + StringUtils.replaceEach(glob, new String[]{"*", "?"}, new String[]{".*", ".?"}) + "$");
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.jacquant.squiggly.parser;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SquigglyDescentParserTest {
+
+    private static final String[] VALID = {
+            "id", "id,name", "a-", "a$b", "_a1", "a?", "?a", "*a*", "a*b?c", "*", "**",
+            "assignee{firstName,lastName}", "assignee[firstName]", "a{}", "a[]", "a{**}", "a{b{c{d}}}",
+            "(a|b){c}", "(a,b)[c]", "(a|~b~i|c*){d,e}", "a.b", "a.b.c{d}", "a.*", "*.a", "a.~b~",
+            "-a", "-a.b", "-a.b.c", "a,-b", "a{-b,-c}", "-a,a{b}",
+            "~a~", "~a b~", "~a*~", "~a~i", "/x/i", "~a.*|b[0-9]{2}~", "/-a,b(c)?/",
+            "id,id,assignee{id},assignee{name}", "a.b,a.c,a{d}"
+    };
+
+    private static final String[] INVALID = {
+            "i", "a.i", "~a(b)~", "a-i", "*i", "a**", "~a?~", "~a~ii", "a{b]", "?", "a*?", "a b", "~a**~", "a,",
+            "(a)", "-a{b}", "-**", "**.a", "/x~/", "~x/~", "(**|a){b}", "a{", "a}", "()", "~~", "a{b}c", ",a"
+    };
+
+    private static final char[] ALPHABET = "abi-.,()|~/?*[]{}$_ ".toCharArray();
+
+    private final SquigglyDescentParser parser = new SquigglyDescentParser();
+    private final AntlrSquigglyParser antlrParser = new AntlrSquigglyParser();
+
+    @Test
+    void testValid() {
+        for (String filter : VALID) {
+            assertSameAsAntlr(filter);
+        }
+    }
+
+    @Test
+    void testInvalid() {
+        for (String filter : INVALID) {
+            assertThrows(ParseCancellationException.class, () -> parser.parse(filter), filter);
+            assertSameAsAntlr(filter);
+        }
+    }
+
+    @Test
+    void testSameAsAntlrForRandomFilters() {
+        Random random = new Random(20);
+
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder filter = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+
+            for (int j = 0; j < length; j++) {
+                filter.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+            }
+
+            assertSameAsAntlr(filter.toString());
+        }
+    }
+
+    @Test
+    void testWideFilter() {
+        StringBuilder filter = new StringBuilder("id");
+
+        for (int i = 0; i < 5000; i++) {
+            filter.append(",field").append(i);
+        }
+
+        List<SquigglyNode> nodes = parser.parse(filter.toString());
+
+        assertEquals(5001, nodes.size());
+        assertSame(nodes, antlrParser.parse(filter.toString()));
+    }
+
+    @Test
+    void testInvalidPattern() {
+        SquigglyParseException error = assertThrows(SquigglyParseException.class, () -> parser.parse("id,~ab[~"));
+
+        assertEquals(6, error.getPosition());
+        assertEquals(error.getMessage(), assertThrows(SquigglyParseException.class, () -> antlrParser.parse("id,~ab[~")).getMessage());
+        assertEquals(0, error.getStackTrace().length);
+        assertThrows(ParseCancellationException.class, () -> parser.parse("~[~,a b"));
+    }
+
+    // both parsers intern their nodes, so the same filter gives the very same list
+    private void assertSameAsAntlr(String filter) {
+        List<SquigglyNode> expected;
+
+        try {
+            expected = antlrParser.parse(filter);
+        } catch (ParseCancellationException e) {
+            try {
+                parser.parse(filter);
+                fail("Expected " + filter + " to be invalid");
+            } catch (ParseCancellationException actual) {
+                assertSame(e.getClass(), actual.getClass(), filter);
+            }
+
+            return;
+        }
+
+        assertSame(expected, parser.parse(filter), filter);
+    }
+}
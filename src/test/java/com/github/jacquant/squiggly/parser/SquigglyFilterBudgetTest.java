@@ -0,0 +1,104 @@
+package com.github.jacquant.squiggly.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SquigglyFilterBudgetTest {
+
+    @Test
+    void testNodes() {
+        SquigglyDescentParser parser = new SquigglyDescentParser(new SquigglyFilterBudget(3, 0, 0, 0));
+
+        assertEquals(2, parser.parse("a,b{c}").size());
+        assertEquals(1, parser.parse("a,a,a").size());
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse("a,b,c,d"));
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse("a.b.c.d"));
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse("(a|b){c}"));
+    }
+
+    @Test
+    void testNestedFieldListsAreRejectedEarly() {
+        StringBuilder filter = new StringBuilder();
+
+        for (int i = 0; i < 40; i++) {
+            filter.append("(a|b){");
+        }
+
+        filter.append("c");
+
+        for (int i = 0; i < 40; i++) {
+            filter.append("}");
+        }
+
+        SquigglyDescentParser parser = new SquigglyDescentParser(new SquigglyFilterBudget(1000, 0, 0, 0));
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse(filter.toString()));
+    }
+
+    @Test
+    void testDepth() {
+        SquigglyDescentParser parser = new SquigglyDescentParser(new SquigglyFilterBudget(0, 2, 0, 0));
+
+        assertEquals(2, parser.parse("a{b},c.d").size());
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse("a{b{c}}"));
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse("a.b.c"));
+    }
+
+    @Test
+    void testPatternComplexity() {
+        SquigglyDescentParser parser = new SquigglyDescentParser(new SquigglyFilterBudget(0, 0, 6, 0));
+
+        assertEquals(3, parser.parse("a*b,~c.d~,longExactName").size());
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse("a*b,~c.d.e~"));
+    }
+
+    @Test
+    void testDeepWildcards() {
+        SquigglyDescentParser parser = new SquigglyDescentParser(new SquigglyFilterBudget(0, 0, 0, 1));
+
+        assertEquals(1, parser.parse("a{**}").size());
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse("a{**},b{**}"));
+    }
+
+    @Test
+    void testMetrics() {
+        SquigglyFilterBudget budget = new SquigglyFilterBudget(3, 0, 0, 0);
+        SquigglyDescentParser parser = new SquigglyDescentParser(budget);
+
+        parser.parse("a{b}");
+        parser.parse("c");
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse("a,b,c,d"));
+        budget.recordDowngrade();
+
+        Map<String, Object> metrics = new HashMap<>();
+        budget.getMetricsSource("budget.").applyMetrics(metrics);
+
+        assertEquals(2L, metrics.get("budget.admittedCount"));
+        assertEquals(1L, metrics.get("budget.rejectedCount"));
+        assertEquals(1L, metrics.get("budget.downgradedCount"));
+        assertEquals(2L, metrics.get("budget.largestNodes"));
+        assertEquals(2L, metrics.get("budget.largestDepth"));
+    }
+
+    @Test
+    void testAdmit() {
+        SquigglyParser parser = new SquigglyParser();
+        StringBuilder deepFilter = new StringBuilder();
+
+        for (int i = 0; i < 40; i++) {
+            deepFilter.append("a.");
+        }
+
+        deepFilter.append("a");
+
+        assertEquals("base", parser.admit(deepFilter.toString(), "base"));
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse(deepFilter.toString()));
+        assertThrows(SquigglyFilterBudgetException.class, () -> parser.parse(deepFilter.toString()));
+        assertEquals("a{b}", parser.admit("a{b}", "base"));
+        assertEquals("a{b", parser.admit("a{b", "base"));
+    }
+}
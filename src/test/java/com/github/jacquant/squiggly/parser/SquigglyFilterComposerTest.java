@@ -0,0 +1,69 @@
+package com.github.jacquant.squiggly.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SquigglyFilterComposerTest {
+
+    private final SquigglyParser parser = new SquigglyParser();
+    private final SquigglyFilterComposer composer = new SquigglyFilterComposer();
+
+    @Test
+    void testWrap() {
+        assertSame(parser.parse("items{id,name}"), composer.wrap("items", parser.parse("id,name")));
+        assertSame(parser.parse("items{-secret}"), composer.wrap("items", parser.parse("-secret")));
+        assertSame(parser.parse("items{assignee{id},*}"), composer.wrap("items", parser.parse("assignee{id},*")));
+        assertSame(parser.parse("items{}"), composer.wrap("items", parser.parse("")));
+    }
+
+    @Test
+    void testSameOperandsGiveSameComposite() {
+        List<SquigglyNode> nodes = parser.parse("id,summary");
+        List<SquigglyNode> mask = parser.parse("id");
+
+        assertSame(composer.wrap("issues", nodes), composer.wrap("issues", nodes));
+        assertSame(composer.intersect(nodes, mask), composer.intersect(nodes, mask));
+        assertSame(composer.union(nodes, mask), composer.union(nodes, mask));
+    }
+
+    @Test
+    void testUnion() {
+        assertSame(parser.parse("id,name,assignee{id}"), composer.union(parser.parse("id"), parser.parse("name,assignee{id}")));
+        assertSame(parser.parse("assignee{id,name}"), composer.union(parser.parse("assignee{id}"), parser.parse("assignee{name}")));
+        assertSame(parser.parse("a{b,c}"), composer.union(parser.parse("a.b"), parser.parse("a.c")));
+        assertSame(parser.parse("id"), composer.union(parser.parse(""), parser.parse("id")));
+        assertSame(parser.parse("id"), composer.union(parser.parse("id"), parser.parse("")));
+    }
+
+    @Test
+    void testIntersect() {
+        assertSame(parser.parse("id,name"), composer.intersect(parser.parse("id,name,secret"), parser.parse("id,name")));
+        assertSame(parser.parse("assignee{firstName}"), composer.intersect(parser.parse("assignee{firstName,email}"), parser.parse("assignee{firstName,lastName}")));
+        assertSame(parser.parse("assignee{firstName}"), composer.intersect(parser.parse("assignee"), parser.parse("assignee{firstName}")));
+        assertSame(parser.parse("id,assignee{firstName}"), composer.intersect(parser.parse("*"), parser.parse("id,assignee{firstName}")));
+        assertSame(parser.parse("id,name"), composer.intersect(parser.parse("id,name"), parser.parse("**")));
+        assertSame(parser.parse("id,name"), composer.intersect(parser.parse("id,name,password"), parser.parse("~id|name~")));
+        assertSame(parser.parse(""), composer.intersect(parser.parse("id"), parser.parse("")));
+        assertSame(parser.parse(""), composer.intersect(parser.parse(""), parser.parse("id,name")));
+    }
+
+    @Test
+    void testIntersectWithExclusions() {
+        assertSame(parser.parse("id,-secret"), composer.intersect(parser.parse("id,secret"), parser.parse("-secret")));
+        assertSame(parser.parse("*,-secret"), composer.intersect(parser.parse("*"), parser.parse("-secret")));
+        assertSame(parser.parse("id,-name,-secret"), composer.intersect(parser.parse("id,-name"), parser.parse("-secret")));
+        assertSame(parser.parse("assignee{-email},id"), composer.intersect(parser.parse("id,assignee"), parser.parse("-assignee.email")));
+        assertSame(parser.parse("id,-secret"), composer.intersect(parser.parse("id,name,secret"), parser.parse("id,-secret")));
+    }
+
+    @Test
+    void testComposedFiltersCompose() {
+        List<SquigglyNode> nodes = composer.union(parser.parse("id"), parser.parse("name"));
+
+        assertSame(parser.parse("items{id,name}"), composer.wrap("items", nodes));
+        assertSame(parser.parse("items{id}"), composer.intersect(composer.wrap("items", nodes), parser.parse("items{id}")));
+    }
+}
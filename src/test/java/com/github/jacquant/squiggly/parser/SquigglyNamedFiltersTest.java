@@ -0,0 +1,107 @@
+package com.github.jacquant.squiggly.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SquigglyNamedFiltersTest {
+
+    private final SquigglyParser parser = new SquigglyParser();
+    private final SquigglyNamedFilters namedFilters = SquigglyParser.getNamedFilters();
+
+    @Test
+    void testLoadedFromConfig() {
+        // testIssue refers to testUser, which comes after it
+        assertEquals("id,assignee{@testUser}", namedFilters.getExpression("testIssue"));
+        assertSame(parser.parse("id,assignee{firstName,lastName}"), namedFilters.getNodes("testIssue"));
+    }
+
+    @Test
+    void testReferenceResolvesToPinnedNodes() {
+        namedFilters.register("issueSummary", "id,key,fields{summary,assignee}");
+
+        assertSame(namedFilters.getNodes("issueSummary"), parser.parse("@issueSummary"));
+        assertSame(namedFilters.getNodes("issueSummary"), parser.parse(" @issueSummary "));
+        assertSame(parser.parse("id,key,fields{summary,assignee}"), parser.parse("@issueSummary"));
+    }
+
+    @Test
+    void testReferenceCombinedWithFragments() {
+        namedFilters.register("userSummary", "firstName,lastName");
+
+        assertSame(parser.parse("id,firstName,lastName"), parser.parse("id,@userSummary"));
+        assertSame(parser.parse("assignee{firstName,lastName,email}"), parser.parse("assignee{@userSummary,email}"));
+        assertSame(parser.parse("assignee{firstName,lastName},reporter{firstName,lastName}"), parser.parse("(assignee|reporter){@userSummary}"));
+    }
+
+    @Test
+    void testReRegistration() {
+        namedFilters.register("sx", "id");
+        assertSame(parser.parse("id,name"), parser.parse("@sx,name"));
+
+        namedFilters.register("sx", "other");
+        assertSame(parser.parse("other,name"), parser.parse("@sx,name"));
+    }
+
+    @Test
+    void testLateRegistration() {
+        namedFilters.unregister("sy");
+        assertThrows(SquigglyParseException.class, () -> parser.parse("@sy,name"));
+
+        namedFilters.register("sy", "id");
+        assertSame(parser.parse("id,name"), parser.parse("@sy,name"));
+
+        namedFilters.unregister("sy");
+        assertThrows(SquigglyParseException.class, () -> parser.parse("@sy,name"));
+    }
+
+    @Test
+    void testUnknownReference() {
+        assertThrows(SquigglyParseException.class, () -> parser.parse("@unknownFilter"));
+        assertThrows(SquigglyParseException.class, () -> parser.parse("id,@unknownFilter"));
+        assertThrows(SquigglyParseException.class, () -> new SquigglyDescentParser().parse("@testUser"));
+    }
+
+    @Test
+    void testReferenceInRegex() {
+        assertSame(new AntlrSquigglyParser().parse("~a@testUser~"), parser.parse("~a@testUser~"));
+    }
+
+    @Test
+    void testCycle() {
+        namedFilters.register("cycleA", "a");
+        namedFilters.register("cycleB", "@cycleA");
+        namedFilters.register("cycleA", "@cycleB");
+
+        assertThrows(SquigglyParseException.class, () -> parser.parse("x,@cycleA"));
+    }
+
+    @Test
+    void testRegisterAll() {
+        SquigglyNamedFilters filters = new SquigglyNamedFilters();
+        Map<String, String> expressions = new LinkedHashMap<>();
+        expressions.put("outer", "a{@inner}");
+        expressions.put("inner", "b");
+        filters.registerAll(expressions);
+
+        assertSame(parser.parse("a{b}"), filters.getNodes("outer"));
+
+        expressions.put("broken", "@missing");
+        assertThrows(SquigglyParseException.class, () -> new SquigglyNamedFilters().registerAll(expressions));
+    }
+
+    @Test
+    void testUnregister() {
+        namedFilters.register("temporary", "id");
+        namedFilters.unregister("temporary");
+
+        assertNull(namedFilters.getNodes("temporary"));
+        assertThrows(IllegalArgumentException.class, () -> namedFilters.register("not-valid", "id"));
+    }
+}
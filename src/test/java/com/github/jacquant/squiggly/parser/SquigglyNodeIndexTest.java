@@ -0,0 +1,225 @@
+package com.github.jacquant.squiggly.parser;
+
+import com.github.jacquant.squiggly.name.AnyDeepName;
+import com.github.jacquant.squiggly.name.AnyShallowName;
+import com.github.jacquant.squiggly.name.ExactName;
+import com.github.jacquant.squiggly.name.RegexName;
+import com.github.jacquant.squiggly.name.SquigglyName;
+import com.github.jacquant.squiggly.name.WildcardName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SquigglyNodeIndexTest {
+
+    @Test
+    void testExactBeatsEverything() {
+        List<SquigglyNode> nodes = nodes(new ExactName("id"), new WildcardName("i*"), new RegexName("i.*", Collections.<String>emptySet()), AnyShallowName.get(), AnyDeepName.get());
+
+        assertSame(nodes.get(0), SquigglyNodeIndex.of(nodes).findBest("id"));
+    }
+
+    @Test
+    void testLongestPatternWins() {
+        List<SquigglyNode> nodes = nodes(new WildcardName("issue*"), new WildcardName("iss*"), AnyShallowName.get());
+        SquigglyNodeIndex index = SquigglyNodeIndex.of(nodes);
+
+        assertSame(nodes.get(0), index.findBest("issueSummary"));
+        assertSame(nodes.get(1), index.findBest("issAction"));
+        assertSame(nodes.get(2), index.findBest("reporter"));
+    }
+
+    @Test
+    void testLaterNodeWinsTies() {
+        List<SquigglyNode> nodes = nodes(new WildcardName("a*"), new WildcardName("*a"), new ExactName("id"), new ExactName("id"));
+        SquigglyNodeIndex index = SquigglyNodeIndex.of(nodes);
+
+        assertSame(nodes.get(1), index.findBest("aa"));
+        assertSame(nodes.get(3), index.findBest("id"));
+    }
+
+    @Test
+    void testAnyShallowBeatsAnyDeep() {
+        List<SquigglyNode> nodes = nodes(AnyShallowName.get(), AnyDeepName.get());
+
+        assertSame(nodes.get(0), SquigglyNodeIndex.of(nodes).findBest("id"));
+    }
+
+    @Test
+    void testNoMatch() {
+        assertNull(SquigglyNodeIndex.of(nodes(new ExactName("id"), new WildcardName("iss*"))).findBest("reporter"));
+    }
+
+    @Test
+    void testSameAsLinearScan() {
+        List<SquigglyNode> nodes = nodes(new ExactName("assignee"),
+                new WildcardName("a*"),
+                new RegexName(".*ee", Collections.<String>emptySet()),
+                new WildcardName("*ee"),
+                AnyDeepName.get(),
+                new ExactName("assignee"),
+                new WildcardName("as*"),
+                AnyShallowName.get(),
+                new RegexName("x", Collections.<String>emptySet()));
+        SquigglyNodeIndex index = SquigglyNodeIndex.of(nodes);
+
+        for (String name : Arrays.asList("assignee", "actions", "reporter", "ee", "as", "assign", "x")) {
+            assertSame(scan(nodes, name), index.findBest(name), name);
+        }
+    }
+
+    @Test
+    void testSameAsLinearScanWithManyWildcards() {
+        List<SquigglyName> names = new ArrayList<>();
+
+        for (int i = 0; i < 70; i++) {
+            names.add(new WildcardName((i % 2 == 0) ? "*" + i : "a?" + i + "*"));
+            names.add(new RegexName("a.*" + i, Collections.<String>emptySet()));
+        }
+
+        names.add(new WildcardName("a.b*"));
+        names.add(new WildcardName("*"));
+        List<SquigglyNode> nodes = nodes(names.toArray(new SquigglyName[0]));
+        SquigglyNodeIndex index = SquigglyNodeIndex.of(nodes);
+
+        for (String name : Arrays.asList("a", "a4", "ab4", "ab45x", "a69", "b68", "x1", "a.bc", "ab.c", "a\u00e963z")) {
+            assertSame(scan(nodes, name), index.findBest(name), name);
+        }
+    }
+
+    @Test
+    void testStarsDoNotCountWithTheAutomaton() {
+        List<SquigglyNode> nodes = nodes(new WildcardName("ab*"), new WildcardName("*a*"), new WildcardName("q*"), new WildcardName("r*"));
+        List<SquigglyNode> withRegex = new ArrayList<>(nodes);
+        withRegex.addAll(nodes(new RegexName("ab", Collections.<String>emptySet())));
+
+        assertSame(nodes.get(0), SquigglyNodeIndex.of(nodes).findBest("ab"));
+        assertSame(withRegex.get(4), SquigglyNodeIndex.of(withRegex).findBest("ab"));
+    }
+
+    @Test
+    void testSameAsLinearScanWithMixedStars() {
+        Random random = new Random(42);
+
+        for (int round = 0; round < 200; round++) {
+            List<SquigglyName> names = new ArrayList<>();
+            List<String> expressions = new ArrayList<>();
+            int count = 4 + random.nextInt(12);
+
+            for (int i = 0; i < count; i++) {
+                names.add(random.nextInt(4) == 0 ? new RegexName(randomName(random, ".*"), Collections.<String>emptySet()) : new WildcardName(randomName(random, "*")));
+                expressions.add(names.get(i).getName());
+            }
+
+            List<SquigglyNode> nodes = nodes(names.toArray(new SquigglyName[0]));
+            SquigglyNodeIndex index = SquigglyNodeIndex.of(nodes);
+
+            for (int i = 0; i < 20; i++) {
+                String name = randomName(random, "");
+                assertSame(scan(nodes, name), index.findBest(name), expressions + " " + name);
+            }
+        }
+    }
+
+    @Test
+    void testExpand() {
+        List<SquigglyNode> nodes = nodes(new ExactName("id"),
+                new WildcardName("iss*"),
+                new RegexName("rep.*", Collections.<String>emptySet()),
+                new WildcardName("*ee"),
+                new WildcardName("zz*"));
+        SquigglyNodeIndex index = SquigglyNodeIndex.of(nodes);
+        List<String> propertyNames = Arrays.asList("id", "issueSummary", "reporter", "assignee", "actions");
+        SquigglyNodeIndex expansion = index.expand(String.class, propertyNames);
+
+        assertSame(expansion, index.expand(String.class, propertyNames));
+        assertNotSame(expansion, index.expand(Integer.class, propertyNames));
+
+        // names outside the class fall back to the full index
+        for (String name : Arrays.asList("id", "issueSummary", "reporter", "assignee", "actions", "zzTop", "issue")) {
+            assertSame(scan(nodes, name), expansion.findBest(name), name);
+        }
+
+        assertTrue(expansion.hasPatterns());
+        assertFalse(expansion.containsExact("reporter"));
+    }
+
+    @Test
+    void testExpandIsRememberedForManyClasses() {
+        SquigglyNodeIndex index = SquigglyNodeIndex.of(nodes(new ExactName("id"), new WildcardName("iss*")));
+        List<String> propertyNames = Arrays.asList("id", "issueSummary");
+        List<SquigglyNodeIndex> expansions = new ArrayList<>();
+
+        // array classes of every dimension are as many distinct classes
+        for (int dimensions = 1; dimensions <= 200; dimensions++) {
+            expansions.add(index.expand(Array.newInstance(Object.class, new int[dimensions]).getClass(), propertyNames));
+        }
+
+        for (int dimensions = 1; dimensions <= 200; dimensions++) {
+            assertSame(expansions.get(dimensions - 1), index.expand(Array.newInstance(Object.class, new int[dimensions]).getClass(), propertyNames));
+        }
+    }
+
+    @Test
+    void testExpandWithoutPatterns() {
+        SquigglyNodeIndex index = SquigglyNodeIndex.of(nodes(new ExactName("id"), AnyShallowName.get()));
+
+        assertSame(index, index.expand(String.class, Arrays.asList("id", "name")));
+    }
+
+    // the linear scan the index replaces
+    private static SquigglyNode scan(List<SquigglyNode> nodes, String name) {
+        SquigglyNode match = null;
+        int lastMatchStrength = -1;
+
+        for (SquigglyNode node : nodes) {
+            int matchStrength = node.match(name);
+
+            if (matchStrength >= 0 && matchStrength >= lastMatchStrength) {
+                match = node;
+                lastMatchStrength = matchStrength;
+            }
+        }
+
+        return match;
+    }
+
+    // a short name over a small alphabet, with the given star between some of its letters
+    private static String randomName(Random random, String star) {
+        StringBuilder name = new StringBuilder();
+        int length = random.nextInt(4);
+
+        for (int i = 0; i <= length; i++) {
+            if (random.nextInt(3) == 0) {
+                name.append(star);
+            }
+
+            if (i < length) {
+                name.append((char) ('a' + random.nextInt(3)));
+            }
+        }
+
+        return name.toString();
+    }
+
+    private static List<SquigglyNode> nodes(SquigglyName... names) {
+        SquigglyNode[] nodes = new SquigglyNode[names.length];
+
+        for (int i = 0; i < names.length; i++) {
+            nodes[i] = new SquigglyNode(names[i], Collections.<SquigglyNode>emptyList(), false, false, false);
+        }
+
+        return Arrays.asList(nodes);
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.jacquant.squiggly.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SquigglyNodeInternerTest {
+
+    private final SquigglyParser parser = new SquigglyParser();
+
+    @Test
+    void testIdenticalSubtreesAreShared() {
+        SquigglyNode assignee = parser.parse("id,assignee{firstName,lastName}").get(1);
+        SquigglyNode otherAssignee = parser.parse("assignee{firstName,lastName}").get(0);
+        SquigglyNode reporter = parser.parse("reporter{firstName,lastName}").get(0);
+
+        assertSame(assignee, otherAssignee);
+        assertSame(assignee.getChildIndex(), otherAssignee.getChildIndex());
+        assertSame(assignee.getChildren().get(0), reporter.getChildren().get(0));
+        assertSame(assignee.getChildren().get(1).getSquigglyName(), reporter.getChildren().get(1).getSquigglyName());
+    }
+
+    @Test
+    void testIdenticalFiltersAreShared() {
+        List<SquigglyNode> nodes = parser.parse("id,assignee{firstName}");
+
+        assertSame(nodes, parser.parse("id,assignee{firstName},id"));
+        assertSame(nodes, parser.parse("id,assignee[firstName]"));
+    }
+
+    @Test
+    void testIdenticalFiltersAreSharedAfterGc() throws InterruptedException {
+        List<SquigglyNode> nodes = parser.parse("id,name");
+
+        // the synthetic root of the first parse is only weakly reachable
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertSame(nodes, parser.parse("name,id"));
+        assertSame(nodes.get(0), parser.parse("id").get(0));
+    }
+
+    @Test
+    void testDifferentNodesAreNotShared() {
+        assertNotSame(parser.parse("id").get(0), parser.parse("-id").get(0));
+        assertNotSame(parser.parse("assignee").get(0), parser.parse("assignee{}").get(0));
+        assertNotSame(parser.parse("assignee{id}").get(0), parser.parse("assignee{name}").get(0));
+        assertNotSame(parser.parse("~a.*~").get(0).getSquigglyName(), parser.parse("~a.*~i").get(0).getSquigglyName());
+        assertEquals(-1, parser.parse("~a.*~").get(0).match("ABC"));
+        assertEquals(5, parser.parse("~a.*~i").get(0).match("ABC"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.jacquant.squiggly.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SquigglyParserTest {
+
+    private final SquigglyParser parser = new SquigglyParser();
+
+    @Test
+    void testFieldOrderIsCanonical() {
+        assertSame(parser.parse("id,name"), parser.parse("name,id"));
+        assertSame(parser.parse("id,name,id"), parser.parse("name,id"));
+        assertSame(parser.parse("assignee{lastName,firstName},id"), parser.parse("assignee{firstName,lastName},id"));
+        assertSame(parser.parse("assignee.firstName,assignee.lastName"), parser.parse("assignee.lastName,assignee.firstName"));
+        assertEquals(Arrays.asList("id", "name", "summary"), names(parser.parse("summary,name,id")));
+    }
+
+    @Test
+    void testFieldOrderIsCanonicalAfterGc() throws InterruptedException {
+        SquigglyFilterComposer composer = new SquigglyFilterComposer();
+        List<SquigglyNode> nodes = parser.parse("id,name");
+        List<SquigglyNode> wrapped = composer.wrap("items", nodes);
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // what's compiled from the nodes is keyed by the list, so reordered filters keep sharing it
+        assertSame(nodes, parser.parse("name,id"));
+        assertSame(wrapped, composer.wrap("items", parser.parse("name,id")));
+    }
+
+    @Test
+    void testSignificantOrderIsKept() {
+        // the later of two equally strong wildcards wins
+        assertNotSame(parser.parse("a*,*a"), parser.parse("*a,a*"));
+        assertEquals(Arrays.asList("*a", "a*"), names(parser.parse("*a,a*")));
+
+        // a property in both views takes the first one
+        assertNotSame(parser.parse("full{id},base"), parser.parse("base,full{id}"));
+        assertEquals(Arrays.asList("name", "full", "base", "id"), names(parser.parse("name,full{id},id,base")));
+    }
+
+    @Test
+    void testInvalidFilterIsRemembered() {
+        SquigglyParseException error = assertThrows(SquigglyParseException.class, () -> parser.parse("id,,name"));
+        SquigglyParseException cachedError = assertThrows(SquigglyParseException.class, () -> parser.parse(" id,,name "));
+
+        assertEquals(1, error.getLine());
+        assertEquals(3, error.getPosition());
+        assertEquals("line 1:3 " + error.getDescription(), error.getMessage());
+        assertEquals(error.getMessage(), cachedError.getMessage());
+        assertEquals(error.getPosition(), cachedError.getPosition());
+        assertNotSame(error, cachedError);
+        assertEquals(0, cachedError.getStackTrace().length);
+    }
+
+    @Test
+    void testInvalidPatternIsRemembered() {
+        Map<String, Object> before = metrics();
+        SquigglyParseException error = assertThrows(SquigglyParseException.class, () -> parser.parse("id,~ab[~"));
+        SquigglyParseException cachedError = assertThrows(SquigglyParseException.class, () -> parser.parse("id,~ab[~"));
+        Map<String, Object> after = metrics();
+
+        assertEquals(6, error.getPosition());
+        assertEquals(error.getMessage(), cachedError.getMessage());
+        assertEquals(0, error.getStackTrace().length);
+        assertEquals(1L, (Long) after.get("squiggly.parser.errorCache.missCount") - (Long) before.get("squiggly.parser.errorCache.missCount"));
+        assertEquals(1L, (Long) after.get("squiggly.parser.errorCache.hitCount") - (Long) before.get("squiggly.parser.errorCache.hitCount"));
+    }
+
+    private static Map<String, Object> metrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        SquigglyParser.getMetricsSource().applyMetrics(metrics);
+        return metrics;
+    }
+
+    private static List<String> names(List<SquigglyNode> nodes) {
+        List<String> names = new ArrayList<>();
+
+        for (SquigglyNode node : nodes) {
+            names.add(node.getName());
+        }
+
+        return names;
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.jacquant.squiggly.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jacquant.squiggly.Squiggly;
+import com.github.jacquant.squiggly.model.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestSquigglyContextProviderTest {
+
+    private final User user = new User("Jorah", "Mormont");
+
+    @Test
+    void testCustomizedFilter() throws Exception {
+        assertEquals("{\"firstName\":\"Jorah\"}", stringify("base"));
+    }
+
+    @Test
+    void testOverBudgetFilterIsCustomized() throws Exception {
+        StringBuilder deepFilter = new StringBuilder();
+
+        for (int i = 0; i < 40; i++) {
+            deepFilter.append("a.");
+        }
+
+        deepFilter.append("a");
+
+        // the test config downgrades filters over the budget to the base view, which the server still restricts
+        assertEquals("{\"firstName\":\"Jorah\"}", stringify(deepFilter.toString()));
+    }
+
+    private String stringify(String filter) throws Exception {
+        HttpServletRequest request = request(filter);
+        HttpServletResponse response = response();
+
+        RequestSquigglyContextProvider provider = new RequestSquigglyContextProvider() {
+            @Override
+            protected String customizeFilter(String filter, Class beanClass) {
+                return filter + ",-lastName";
+            }
+
+            @Override
+            protected HttpServletRequest getRequest() {
+                return request;
+            }
+
+            @Override
+            protected HttpServletResponse getResponse() {
+                return response;
+            }
+        };
+
+        return Squiggly.init(new ObjectMapper(), provider).writeValueAsString(user);
+    }
+
+    private static HttpServletRequest request(String filter) {
+        Map<String, Object> attributes = new HashMap<>();
+
+        return (HttpServletRequest) Proxy.newProxyInstance(RequestSquigglyContextProviderTest.class.getClassLoader(), new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getParameter":
+                    return "fields".equals(args[0]) ? filter : null;
+                case "getAttribute":
+                    return attributes.get(args[0]);
+                case "setAttribute":
+                    attributes.put((String) args[0], args[1]);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static HttpServletResponse response() {
+        return (HttpServletResponse) Proxy.newProxyInstance(RequestSquigglyContextProviderTest.class.getClassLoader(), new Class[]{HttpServletResponse.class}, (proxy, method, args) -> {
+            if ("getStatus".equals(method.getName())) {
+                return HttpServletResponse.SC_OK;
+            }
+
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}